@@ -0,0 +1,55 @@
+package kuan.tdd.di;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZI_Result;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.openjdk.jcstress.annotations.Expect.*;
+
+/**
+ * 实例过期后，两个线程同时访问异步刷新的作用域：都不等待刷新，后台只重新创建一次
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+@JCStressTest
+@Outcome(id = "true, 2", expect = ACCEPTABLE, desc = "Both threads served the stale instance, refreshed once")
+@Outcome(id = "false, 2", expect = ACCEPTABLE_INTERESTING, desc = "Refresh finished before the second access")
+@Outcome(expect = FORBIDDEN, desc = "Refreshed more than once, or never")
+@State
+public class AsyncExpiringRefreshStress {
+
+    private final StressComponents.Counter counter = new StressComponents.Counter();
+    private final StressComponents.Clock clock = new StressComponents.Clock();
+    private final Context context = StressComponents.context(counter, clock);
+    private final Object expired = context.require(ComponentRef.of(StressComponents.AsyncExpiringService.class));
+    private Object first;
+    private Object second;
+
+    public AsyncExpiringRefreshStress() {
+        clock.advance(StressComponents.TTL);
+    }
+
+    @Actor
+    public void actor1() {
+        first = context.require(ComponentRef.of(StressComponents.AsyncExpiringService.class));
+    }
+
+    @Actor
+    public void actor2() {
+        second = context.require(ComponentRef.of(StressComponents.AsyncExpiringService.class));
+    }
+
+    // 等待后台刷新替换掉过期的实例，时钟不再前进，新的实例不会过期
+    @Arbiter
+    public void arbiter(ZI_Result result) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (context.require(ComponentRef.of(StressComponents.AsyncExpiringService.class)) == expired
+                && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        result.r1 = first == expired && second == expired;
+        result.r2 = counter.count();
+    }
+}
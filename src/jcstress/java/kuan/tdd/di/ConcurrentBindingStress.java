@@ -0,0 +1,55 @@
+package kuan.tdd.di;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZZZ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 两个线程在并发模式下同时绑定同一个 Component
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+@JCStressTest
+@Outcome(id = {"true, false, true", "false, true, true"}, expect = ACCEPTABLE, desc = "Exactly one binding wins")
+@Outcome(expect = FORBIDDEN, desc = "Duplicate lost or both rejected")
+@State
+public class ConcurrentBindingStress {
+
+    private final ContextConfig config = ContextConfig.concurrent();
+    private final StressComponents.Dependency first = new StressComponents.Dependency() {
+    };
+    private final StressComponents.Dependency second = new StressComponents.Dependency() {
+    };
+    private boolean firstBound;
+    private boolean secondBound;
+
+    @Actor
+    public void actor1() {
+        firstBound = bind(first);
+    }
+
+    @Actor
+    public void actor2() {
+        secondBound = bind(second);
+    }
+
+    @Arbiter
+    public void arbiter(ZZZ_Result result) {
+        Object bound = config.getContext().require(ComponentRef.of(StressComponents.Dependency.class));
+        result.r1 = firstBound;
+        result.r2 = secondBound;
+        result.r3 = bound == (firstBound ? first : second);
+    }
+
+    private boolean bind(StressComponents.Dependency dependency) {
+        try {
+            config.bind(StressComponents.Dependency.class, dependency);
+            return true;
+        } catch (ContextConfigException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package kuan.tdd.di;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZZI_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 两个线程同时第一次获取自定义 Scope（每个线程一个实例）中的组件
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+@JCStressTest
+@Outcome(id = "true, true, 2", expect = ACCEPTABLE, desc = "Each thread keeps its own scoped instance")
+@Outcome(expect = FORBIDDEN, desc = "Scoped instance shared across threads, replaced, or constructed more than once per thread")
+@State
+public class CustomScopeStress {
+
+    private final StressComponents.Counter counter = new StressComponents.Counter();
+    private final Context context = StressComponents.context(counter);
+    private Object first;
+    private Object second;
+    private boolean firstStable;
+    private boolean secondStable;
+
+    @Actor
+    public void actor1() {
+        first = context.require(ComponentRef.of(StressComponents.CustomScoped.class));
+        firstStable = first == context.require(ComponentRef.of(StressComponents.CustomScoped.class));
+    }
+
+    @Actor
+    public void actor2() {
+        second = context.require(ComponentRef.of(StressComponents.CustomScoped.class));
+        secondStable = second == context.require(ComponentRef.of(StressComponents.CustomScoped.class));
+    }
+
+    @Arbiter
+    public void arbiter(ZZI_Result result) {
+        result.r1 = first != second;
+        result.r2 = firstStable && secondStable;
+        result.r3 = counter.count();
+    }
+}
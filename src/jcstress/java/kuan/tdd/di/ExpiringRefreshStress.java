@@ -0,0 +1,47 @@
+package kuan.tdd.di;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZI_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 实例过期后，两个线程同时访问：只重新创建一次，两个线程都拿到新的实例
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+@JCStressTest
+@Outcome(id = "true, 2", expect = ACCEPTABLE, desc = "Both threads see the only refreshed instance")
+@Outcome(expect = FORBIDDEN, desc = "Stale instance served, or refreshed more than once")
+@State
+public class ExpiringRefreshStress {
+
+    private final StressComponents.Counter counter = new StressComponents.Counter();
+    private final StressComponents.Clock clock = new StressComponents.Clock();
+    private final Context context = StressComponents.context(counter, clock);
+    private final Object expired = context.require(ComponentRef.of(StressComponents.ExpiringService.class));
+    private Object first;
+    private Object second;
+
+    public ExpiringRefreshStress() {
+        clock.advance(StressComponents.TTL);
+    }
+
+    @Actor
+    public void actor1() {
+        first = context.require(ComponentRef.of(StressComponents.ExpiringService.class));
+    }
+
+    @Actor
+    public void actor2() {
+        second = context.require(ComponentRef.of(StressComponents.ExpiringService.class));
+    }
+
+    @Arbiter
+    public void arbiter(ZI_Result result) {
+        result.r1 = first == second && first != expired;
+        result.r2 = counter.count();
+    }
+}
@@ -0,0 +1,46 @@
+package kuan.tdd.di;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZZI_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 两个线程同时对同一个 ContextConfig 调用 getContext()，并解析 Singleton 组件
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+@JCStressTest
+@Outcome(id = "true, true, 1", expect = ACCEPTABLE, desc = "Same context and the only instance")
+@Outcome(expect = FORBIDDEN, desc = "Context or singleton created more than once")
+@State
+public class GetContextStress {
+
+    private final StressComponents.Counter counter = new StressComponents.Counter();
+    private final ContextConfig config = StressComponents.config(counter);
+    private Context firstContext;
+    private Context secondContext;
+    private Object first;
+    private Object second;
+
+    @Actor
+    public void actor1() {
+        firstContext = config.getContext();
+        first = firstContext.require(ComponentRef.of(StressComponents.Service.class));
+    }
+
+    @Actor
+    public void actor2() {
+        secondContext = config.getContext();
+        second = secondContext.require(ComponentRef.of(StressComponents.Service.class));
+    }
+
+    @Arbiter
+    public void arbiter(ZZI_Result result) {
+        result.r1 = firstContext == secondContext;
+        result.r2 = first == second;
+        result.r3 = counter.count();
+    }
+}
@@ -0,0 +1,43 @@
+package kuan.tdd.di;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZZI_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 两个线程同时第一次调用 Lazy 组件代理的方法
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+@JCStressTest
+@Outcome(id = "true, true, 1", expect = ACCEPTABLE, desc = "Target built once and injected")
+@Outcome(expect = FORBIDDEN, desc = "Target built more than once or seen before injection")
+@State
+public class LazyProxyStress {
+
+    private final StressComponents.Counter counter = new StressComponents.Counter();
+    private final StressComponents.LazyService service = StressComponents.context(counter)
+            .require(ComponentRef.of(StressComponents.LazyService.class));
+    private boolean first;
+    private boolean second;
+
+    @Actor
+    public void actor1() {
+        first = service.dependency() != null;
+    }
+
+    @Actor
+    public void actor2() {
+        second = service.dependency() != null;
+    }
+
+    @Arbiter
+    public void arbiter(ZZI_Result result) {
+        result.r1 = first;
+        result.r2 = second;
+        result.r3 = counter.count();
+    }
+}
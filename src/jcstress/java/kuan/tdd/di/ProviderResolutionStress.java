@@ -0,0 +1,41 @@
+package kuan.tdd.di;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZI_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 两个线程同时通过 Provider<T> 获取 Singleton 组件
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+@JCStressTest
+@Outcome(id = "true, 1", expect = ACCEPTABLE, desc = "Both providers return the only instance")
+@Outcome(expect = FORBIDDEN, desc = "Singleton constructed more than once")
+@State
+public class ProviderResolutionStress {
+
+    private final StressComponents.Counter counter = new StressComponents.Counter();
+    private final Context context = StressComponents.context(counter);
+    private Object first;
+    private Object second;
+
+    @Actor
+    public void actor1() {
+        first = context.require(StressComponents.SERVICE_PROVIDER).get();
+    }
+
+    @Actor
+    public void actor2() {
+        second = context.require(StressComponents.SERVICE_PROVIDER).get();
+    }
+
+    @Arbiter
+    public void arbiter(ZI_Result result) {
+        result.r1 = first == second;
+        result.r2 = counter.count();
+    }
+}
@@ -0,0 +1,34 @@
+package kuan.tdd.di;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 获取到的 Singleton 与自定义 Scope 组件，其非 final 的注入字段都已经可见
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+@JCStressTest
+@Outcome(id = "true, true", expect = ACCEPTABLE, desc = "Injected fields are visible")
+@Outcome(expect = FORBIDDEN, desc = "Instance published before its fields")
+@State
+public class SafePublicationStress {
+
+    private final Context context = StressComponents.context(new StressComponents.Counter());
+
+    @Actor
+    public void actor1(ZZ_Result result) {
+        result.r1 = context.require(ComponentRef.of(StressComponents.Service.class)).dependency != null
+                && context.require(ComponentRef.of(StressComponents.CustomScoped.class)).dependency != null;
+    }
+
+    @Actor
+    public void actor2(ZZ_Result result) {
+        result.r2 = context.require(ComponentRef.of(StressComponents.CustomScoped.class)).dependency != null
+                && context.require(ComponentRef.of(StressComponents.Service.class)).dependency != null;
+    }
+}
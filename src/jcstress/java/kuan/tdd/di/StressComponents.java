@@ -0,0 +1,212 @@
+package kuan.tdd.di;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Scope;
+import jakarta.inject.Singleton;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * 压力测试中共用的组件，每个组件被构造时都会累加 Counter
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+final class StressComponents {
+
+    static final ComponentRef<Provider<Service>> SERVICE_PROVIDER = new ComponentRef<>() {
+    };
+
+    private StressComponents() {
+    }
+
+    static final Duration TTL = Duration.ofSeconds(1);
+
+    static ContextConfig config(Counter counter) {
+        return config(counter, new Clock());
+    }
+
+    static ContextConfig config(Counter counter, Clock clock) {
+        ContextConfig config = new ContextConfig();
+        config.scope(Custom.class, ThreadScopeProvider::new);
+        config.scope(Soft.class, SoftReferenceProvider.scope());
+        config.scope(Expiring.class, ExpiringProvider.scope(TTL, false, clock));
+        config.scope(AsyncExpiring.class, ExpiringProvider.scope(TTL, true, clock));
+        config.bind(Counter.class, counter);
+        config.bind(Dependency.class, new Dependency() {
+        });
+        config.bind(Service.class, Service.class);
+        config.bind(CustomScoped.class, CustomScoped.class);
+        config.bind(LazyService.class, ExpensiveService.class);
+        config.bind(SoftService.class, SoftService.class);
+        config.bind(ExpiringService.class, ExpiringService.class);
+        config.bind(AsyncExpiringService.class, AsyncExpiringService.class);
+        return config;
+    }
+
+    static Context context(Counter counter) {
+        return config(counter).getContext();
+    }
+
+    static Context context(Counter counter, Clock clock) {
+        return config(counter, clock).getContext();
+    }
+
+    static class Counter {
+        private final AtomicInteger count = new AtomicInteger();
+
+        void increment() {
+            count.incrementAndGet();
+        }
+
+        int count() {
+            return count.get();
+        }
+    }
+
+    interface Dependency {
+    }
+
+    @Singleton
+    static class Service {
+        @Inject
+        Dependency dependency;
+
+        @Inject
+        public Service(Counter counter) {
+            counter.increment();
+        }
+    }
+
+    @Scope
+    @Documented
+    @Retention(RUNTIME)
+    @interface Custom {
+    }
+
+    // 与 Singleton 不同的自定义作用域：每个线程各自持有一个实例
+    static class ThreadScopeProvider<T> implements ScopedProvider<T> {
+        private final ComponentProvider<T> provider;
+        private final Map<Thread, T> instances = new ConcurrentHashMap<>();
+
+        ThreadScopeProvider(ComponentProvider<T> provider) {
+            this.provider = provider;
+        }
+
+        @Override
+        public T get(Context context) {
+            return instances.computeIfAbsent(Thread.currentThread(), thread -> provider.get(context));
+        }
+
+        @Override
+        public List<ComponentRef<?>> getDependencies() {
+            return provider.getDependencies();
+        }
+
+        @Override
+        public List<T> instances() {
+            return List.copyOf(instances.values());
+        }
+    }
+
+    // 由测试推进的时钟
+    static class Clock implements LongSupplier {
+        private volatile long now;
+
+        void advance(Duration duration) {
+            now += duration.toNanos();
+        }
+
+        @Override
+        public long getAsLong() {
+            return now;
+        }
+    }
+
+    @Custom
+    static class CustomScoped {
+        @Inject
+        Dependency dependency;
+
+        @Inject
+        public CustomScoped(Counter counter) {
+            counter.increment();
+        }
+    }
+
+    @Scope
+    @Documented
+    @Retention(RUNTIME)
+    @interface Soft {
+    }
+
+    @Soft
+    static class SoftService {
+        @Inject
+        Dependency dependency;
+
+        @Inject
+        public SoftService(Counter counter) {
+            counter.increment();
+        }
+    }
+
+    @Scope
+    @Documented
+    @Retention(RUNTIME)
+    @interface Expiring {
+    }
+
+    @Expiring
+    static class ExpiringService {
+        @Inject
+        public ExpiringService(Counter counter) {
+            counter.increment();
+        }
+    }
+
+    @Scope
+    @Documented
+    @Retention(RUNTIME)
+    @interface AsyncExpiring {
+    }
+
+    @AsyncExpiring
+    static class AsyncExpiringService {
+        @Inject
+        public AsyncExpiringService(Counter counter) {
+            counter.increment();
+        }
+    }
+
+    interface LazyService {
+        Dependency dependency();
+    }
+
+    @Lazy
+    @Singleton
+    static class ExpensiveService implements LazyService {
+        @Inject
+        Dependency dependency;
+
+        @Inject
+        public ExpensiveService(Counter counter) {
+            counter.increment();
+        }
+
+        @Override
+        public Dependency dependency() {
+            return dependency;
+        }
+    }
+}
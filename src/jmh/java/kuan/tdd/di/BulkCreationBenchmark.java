@@ -0,0 +1,73 @@
+package kuan.tdd.di;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量创建原型组件与逐个调用 require 时，每个实例的开销
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@OperationsPerInvocation(BulkCreationBenchmark.BATCH)
+public class BulkCreationBenchmark {
+
+    static final int BATCH = 1000;
+
+    @Singleton
+    public static class Configuration {
+    }
+
+    @Singleton
+    public static class Pool {
+    }
+
+    public static class Buffer {
+    }
+
+    public static class Worker {
+        @Inject
+        Pool pool;
+
+        @Inject
+        public Worker(Configuration configuration, Buffer buffer, Provider<Pool> pool) {
+        }
+    }
+
+    private final ComponentRef<Worker> worker = ComponentRef.of(Worker.class);
+    private final Worker[] workers = new Worker[BATCH];
+    private Context context;
+
+    @Setup
+    public void setup() {
+        ContextConfig config = new ContextConfig();
+        config.bind(Configuration.class, Configuration.class);
+        config.bind(Pool.class, Pool.class);
+        config.bind(Buffer.class, Buffer.class);
+        config.bind(Worker.class, Worker.class);
+        context = config.getContext();
+    }
+
+    @Benchmark
+    public Worker[] require() {
+        for (int i = 0; i < BATCH; i++) {
+            workers[i] = context.require(worker);
+        }
+        return workers;
+    }
+
+    @Benchmark
+    public Worker[] create() {
+        return context.create(worker, workers);
+    }
+}
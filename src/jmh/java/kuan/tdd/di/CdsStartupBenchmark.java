@@ -0,0 +1,74 @@
+package kuan.tdd.di;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 比较有无 CDS 归档时的冷启动耗时：每次启动一个新的 JVM，创建 Context 并实例化所有组件
+ *
+ * @author qinxuekuan
+ * @date 2022/7/22
+ */
+public final class CdsStartupBenchmark {
+
+    // 参数：工作目录，组件数量（默认 2000），每种模式启动的次数（默认 5）
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path work = Path.of(args[0]);
+        int components = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        Files.createDirectories(work);
+
+        String classpath = classpath(work, SyntheticModules.generate(work.resolve("module"), components));
+        Path archive = work.resolve("container.jsa");
+        Files.deleteIfExists(archive);
+        launch(classpath, "-XX:ArchiveClassesAtExit=" + archive);
+
+        long[] cold = new long[runs];
+        long[] archived = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            cold[i] = launch(classpath, "-Xshare:auto");
+            archived[i] = launch(classpath, "-XX:SharedArchiveFile=" + archive);
+        }
+        System.out.printf("components: %d, runs: %d%n", components, runs);
+        System.out.printf("cold start without archive: %d ms (median)%n", median(cold));
+        System.out.printf("cold start with archive:    %d ms (median)%n", median(archived));
+    }
+
+    // CDS 不归档目录中的类，把 classpath 中的目录先打包成 jar
+    private static String classpath(Path work, Path module) throws IOException {
+        List<String> entries = new ArrayList<>();
+        int index = 0;
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            Path path = Path.of(entry);
+            if (Files.isDirectory(path)) {
+                path = SyntheticModules.jar(path, work.resolve("classpath-" + index++ + ".jar"));
+            }
+            entries.add(path.toString());
+        }
+        entries.add(module.toString());
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static long launch(String classpath, String option) throws IOException, InterruptedException {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(java.toString(), option, "-Xlog:all=error", "-cp", classpath,
+                CdsTraining.class.getName(), SyntheticModules.MODULE)
+                .inheritIO().start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Startup failed with " + option);
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
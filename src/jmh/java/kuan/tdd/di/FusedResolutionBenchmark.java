@@ -0,0 +1,85 @@
+package kuan.tdd.di;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析一棵原型依赖树：逐个 provider 解析与融合成一次调用的对比
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FusedResolutionBenchmark {
+
+    @Singleton
+    public static class Settings {
+    }
+
+    public static class Codec {
+        @Inject
+        public Codec(Settings settings) {
+        }
+    }
+
+    public static class Parser {
+        @Inject
+        public Parser(Codec codec, Settings settings) {
+        }
+    }
+
+    public static class Validator {
+        @Inject
+        public Validator(Codec codec) {
+        }
+    }
+
+    public static class Handler {
+        @Inject
+        public Handler(Parser parser, Validator validator) {
+        }
+    }
+
+    public static class Request {
+        @Inject
+        public Request(Handler handler, Parser parser, Settings settings) {
+        }
+    }
+
+    @Param({"false", "true"})
+    public boolean specialized;
+
+    private final ComponentRef<Request> request = ComponentRef.of(Request.class);
+    private Context context;
+
+    @Setup
+    public void setup() {
+        ContextConfig config = new ContextConfig();
+        for (Class<?> type : new Class<?>[]{Settings.class, Codec.class, Parser.class, Validator.class,
+                Handler.class, Request.class}) {
+            bind(config, type);
+        }
+        context = config.getContext();
+        if (specialized) {
+            context.specialize(1);
+            context.require(request);
+        }
+    }
+
+    private static <T> void bind(ContextConfig config, Class<T> type) {
+        config.bind(type, type);
+    }
+
+    @Benchmark
+    public Request resolve() {
+        return context.require(request);
+    }
+}
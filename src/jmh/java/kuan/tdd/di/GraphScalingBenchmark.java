@@ -0,0 +1,144 @@
+package kuan.tdd.di;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 统计不同形状、不同规模的组件图在绑定、检查依赖与第一次解析时的耗时与分配的内存，输出为 CSV 以便跟踪扩展曲线
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+public final class GraphScalingBenchmark {
+
+    // 检查依赖是递归进行的，长链需要足够深的栈
+    private static final long STACK_SIZE = 2L << 30;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // 参数：工作目录，形状（逗号分隔，默认全部），组件数量（逗号分隔，默认 1000,10000,100000），每组重复的次数（默认 3）
+    public static void main(String[] args) throws Exception {
+        Path work = Path.of(args[0]);
+        SyntheticGraphs.Shape[] shapes = args.length > 1 && !args[1].isEmpty()
+                ? Arrays.stream(args[1].split(",")).map(shape -> SyntheticGraphs.Shape.valueOf(shape.toUpperCase(Locale.ROOT)))
+                .toArray(SyntheticGraphs.Shape[]::new)
+                : SyntheticGraphs.Shape.values();
+        int[] sizes = Arrays.stream(args.length > 2 && !args[2].isEmpty() ? args[2].split(",")
+                : new String[]{"1000", "10000", "100000"}).mapToInt(Integer::parseInt).toArray();
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        Files.createDirectories(work);
+
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(work.resolve("scaling.csv")))) {
+            report(csv, "shape,components,phase,millis,bytes");
+            for (SyntheticGraphs.Shape shape : shapes) {
+                for (int size : sizes) {
+                    Path graphs = work.resolve("graphs");
+                    Measurement[] measurements = onLargeStack(() -> measure(shape, () -> SyntheticGraphs.load(graphs, shape, size), runs));
+                    String[] phases = {"bind", "validate", "resolve"};
+                    for (int i = 0; i < phases.length; i++) {
+                        report(csv, "%s,%d,%s,%.3f,%d".formatted(shape.name().toLowerCase(Locale.ROOT), size,
+                                phases[i], measurements[i].nanos() / 1e6, measurements[i].bytes()));
+                    }
+                }
+            }
+        }
+    }
+
+    // 每次都使用新的 ContextConfig，取各阶段的中位数；类的加载不计入。
+    // 每个类的注入分析按 Class 缓存，每次都由新的 ClassLoader 重新加载组件类，每一次绑定都是冷的
+    private static Measurement[] measure(SyntheticGraphs.Shape shape, Callable<Class<?>[]> loading, int runs) throws Exception {
+        Measurement[][] samples = new Measurement[3][runs];
+        for (int run = 0; run < runs; run++) {
+            Class<?>[] types = loading.call();
+            Class<?>[] order = dependencyOrder(shape, types);
+            Meter meter = new Meter();
+            ContextConfig config = new ContextConfig();
+            for (Class<?> type : types) {
+                bind(config, type);
+            }
+            samples[0][run] = meter.lap();
+
+            Context context = config.getContext();
+            samples[1][run] = meter.lap();
+
+            // 按依赖顺序解析，被依赖的组件总是先被创建，避免解析时的深度递归
+            for (Class<?> type : order) {
+                context.require(ComponentRef.of(type));
+            }
+            samples[2][run] = meter.lap();
+        }
+        return Arrays.stream(samples).map(GraphScalingBenchmark::median).toArray(Measurement[]::new);
+    }
+
+    private static <T> void bind(ContextConfig config, Class<T> type) {
+        config.bind(type, type);
+    }
+
+    // 除 FAN_OUT 外，组件只依赖编号更小的组件
+    private static Class<?>[] dependencyOrder(SyntheticGraphs.Shape shape, Class<?>[] types) {
+        if (shape != SyntheticGraphs.Shape.FAN_OUT) {
+            return types;
+        }
+        Class<?>[] reversed = new Class<?>[types.length];
+        for (int i = 0; i < types.length; i++) {
+            reversed[i] = types[types.length - 1 - i];
+        }
+        return reversed;
+    }
+
+    private static Measurement median(Measurement[] measurements) {
+        Measurement[] sorted = measurements.clone();
+        Arrays.sort(sorted, (a, b) -> Long.compare(a.nanos(), b.nanos()));
+        return sorted[sorted.length / 2];
+    }
+
+    private static <T> T onLargeStack(Callable<T> task) throws Exception {
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                result.set(task.call());
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "graph-scaling", STACK_SIZE);
+        thread.start();
+        thread.join();
+        if (failure.get() != null) {
+            throw new IllegalStateException(failure.get());
+        }
+        return result.get();
+    }
+
+    private static void report(PrintWriter csv, String line) {
+        System.out.println(line);
+        csv.println(line);
+        csv.flush();
+    }
+
+    record Measurement(long nanos, long bytes) {
+    }
+
+    // 只统计当前线程分配的内存
+    private static class Meter {
+        private long nanos = System.nanoTime();
+        private long bytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+        Measurement lap() {
+            long now = System.nanoTime();
+            long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+            Measurement measurement = new Measurement(now - nanos, allocated - bytes);
+            nanos = now;
+            bytes = allocated;
+            return measurement;
+        }
+    }
+}
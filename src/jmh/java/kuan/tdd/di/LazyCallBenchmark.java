@@ -0,0 +1,71 @@
+package kuan.tdd.di;
+
+import jakarta.inject.Inject;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 组件已经构造后，调用 @Lazy 注入的组件：直接调用、生成的隐藏类与 java.lang.reflect.Proxy 的对比
+ *
+ * @author qinxuekuan
+ * @date 2022/7/19
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyCallBenchmark {
+
+    public interface Counter {
+        long add(long value);
+    }
+
+    @Lazy
+    public static class SimpleCounter implements Counter {
+        private long total;
+
+        @Inject
+        public SimpleCounter() {
+        }
+
+        @Override
+        public long add(long value) {
+            return total += value;
+        }
+    }
+
+    private Counter direct;
+    private Counter lazy;
+    private Counter proxy;
+
+    @Setup
+    public void setup() {
+        ContextConfig config = new ContextConfig();
+        config.bind(Counter.class, SimpleCounter.class);
+        direct = new SimpleCounter();
+        lazy = config.getContext().require(ComponentRef.of(Counter.class));
+        Counter target = new SimpleCounter();
+        InvocationHandler handler = (instance, method, args) -> method.invoke(target, args);
+        proxy = (Counter) Proxy.newProxyInstance(Counter.class.getClassLoader(), new Class<?>[]{Counter.class}, handler);
+    }
+
+    @Benchmark
+    public long direct() {
+        return direct.add(1);
+    }
+
+    @Benchmark
+    public long lazy() {
+        return lazy.add(1);
+    }
+
+    @Benchmark
+    public long proxy() {
+        return proxy.add(1);
+    }
+}
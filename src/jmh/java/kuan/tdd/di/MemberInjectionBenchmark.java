@@ -0,0 +1,51 @@
+package kuan.tdd.di;
+
+import jakarta.inject.Inject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 为外部创建的实例（如反序列化得到的对象）注入字段与方法的开销
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemberInjectionBenchmark {
+
+    public interface Repository {
+    }
+
+    public static class Entity {
+        @Inject
+        Repository repository;
+
+        Repository installed;
+
+        @Inject
+        public void install(Repository repository) {
+            this.installed = repository;
+        }
+    }
+
+    private Context context;
+
+    @Setup
+    public void setup() {
+        ContextConfig config = new ContextConfig();
+        config.bind(Repository.class, new Repository() {
+        });
+        context = config.getContext();
+    }
+
+    @Benchmark
+    public Entity injectMembers() {
+        return context.injectMembers(new Entity());
+    }
+}
@@ -0,0 +1,10 @@
+package kuan.tdd.di;
+
+/**
+ * 生成大量组件类型时使用的模板，每次按它的字节码定义出一个新的 hidden class
+ *
+ * @author qinxuekuan
+ * @date 2022/7/17
+ */
+final class SyntheticComponent {
+}
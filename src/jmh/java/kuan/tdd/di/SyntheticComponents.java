@@ -0,0 +1,38 @@
+package kuan.tdd.di;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * @author qinxuekuan
+ * @date 2022/7/17
+ */
+final class SyntheticComponents {
+
+    private SyntheticComponents() {
+    }
+
+    // 定义 count 个互不相同的类型，用于构造大量绑定
+    static Class<?>[] define(int count) {
+        byte[] template = template();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Class<?>[] types = new Class<?>[count];
+        for (int i = 0; i < count; i++) {
+            try {
+                types[i] = lookup.defineHiddenClass(template, false).lookupClass();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return types;
+    }
+
+    private static byte[] template() {
+        try (InputStream in = SyntheticComponent.class.getResourceAsStream("SyntheticComponent.class")) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
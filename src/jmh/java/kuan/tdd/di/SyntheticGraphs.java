@@ -0,0 +1,139 @@
+package kuan.tdd.di;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * 按给定的形状生成组件类，生成的类文件按形状与数量缓存在目录中
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+final class SyntheticGraphs {
+
+    // 类继承层次中每一组的深度
+    static final int HIERARCHY_DEPTH = 16;
+    // 树形扇出的宽度
+    static final int FAN_OUT = 16;
+
+    enum Shape {
+        // 组件 i 依赖组件 i - 1
+        CHAIN,
+        // 组件 i 依赖组件 FAN_OUT * i + 1 .. FAN_OUT * i + FAN_OUT
+        FAN_OUT,
+        // 组件 i 依赖组件 i - 1 与 i - 2，相邻的依赖两两组成菱形
+        DIAMOND,
+        // 每 HIERARCHY_DEPTH 个组件组成一条继承链，每一层都有一个依赖上一组最末端组件的 inject 方法
+        HIERARCHY;
+
+        String packageName() {
+            return "synthetic." + name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private SyntheticGraphs() {
+    }
+
+    // 加载生成的组件类，但不初始化它们
+    static Class<?>[] load(Path directory, Shape shape, int count) throws IOException {
+        Path classes = generate(directory, shape, count);
+        ClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()},
+                SyntheticGraphs.class.getClassLoader());
+        Class<?>[] types = new Class<?>[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                types[i] = Class.forName(shape.packageName() + ".C" + i, false, loader);
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        return types;
+    }
+
+    static Path generate(Path directory, Shape shape, int count) throws IOException {
+        Path root = directory.resolve(shape.name().toLowerCase(Locale.ROOT) + "-" + count);
+        Path classes = root.resolve("classes");
+        Path done = root.resolve("done");
+        if (Files.exists(done)) {
+            return classes;
+        }
+        Path sources = root.resolve("sources");
+        Files.createDirectories(sources);
+        Files.createDirectories(classes);
+
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path file = sources.resolve("C" + i + ".java");
+            Files.writeString(file, source(shape, count, i));
+            files.add(file.toString());
+        }
+        SyntheticModules.compile(classes, files);
+        Files.createFile(done);
+        return classes;
+    }
+
+    private static String source(Shape shape, int count, int i) {
+        return switch (shape) {
+            case CHAIN -> component(shape, i, i == 0 ? "" : parameters(i - 1));
+            case FAN_OUT -> component(shape, i, fanOut(count, i));
+            case DIAMOND -> component(shape, i, i == 0 ? "" : i == 1 ? parameters(0) : parameters(i - 1, i - 2));
+            case HIERARCHY -> hierarchy(shape, i);
+        };
+    }
+
+    private static String fanOut(int count, int i) {
+        int[] children = new int[Math.max(0, Math.min(count, FAN_OUT * i + FAN_OUT + 1) - (FAN_OUT * i + 1))];
+        for (int j = 0; j < children.length; j++) {
+            children[j] = FAN_OUT * i + 1 + j;
+        }
+        return parameters(children);
+    }
+
+    private static String component(Shape shape, int i, String parameters) {
+        return """
+                package %s;
+
+                @jakarta.inject.Singleton
+                public class C%d {
+                    @jakarta.inject.Inject
+                    public C%d(%s) {
+                    }
+                }
+                """.formatted(shape.packageName(), i, i, parameters);
+    }
+
+    private static String hierarchy(Shape shape, int i) {
+        int group = i / HIERARCHY_DEPTH * HIERARCHY_DEPTH;
+        String superclass = i == group ? "" : "extends C" + (i - 1) + " ";
+        String dependency = group == 0 ? "" : parameters(group - 1);
+        return """
+                package %s;
+
+                @jakarta.inject.Singleton
+                public class C%d %s{
+                    @jakarta.inject.Inject
+                    public C%d() {
+                    }
+
+                    @jakarta.inject.Inject
+                    public void inject%d(%s) {
+                    }
+                }
+                """.formatted(shape.packageName(), i, superclass, i, i, dependency);
+    }
+
+    private static String parameters(int... dependencies) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (int dependency : dependencies) {
+            joiner.add("C" + dependency + " c" + dependency);
+        }
+        return joiner.toString();
+    }
+}
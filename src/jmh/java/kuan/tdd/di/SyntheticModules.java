@@ -0,0 +1,106 @@
+package kuan.tdd.di;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * 生成由真实的类文件组成的组件模块（CDS 只能归档 jar 中的类）
+ *
+ * @author qinxuekuan
+ * @date 2022/7/22
+ */
+final class SyntheticModules {
+
+    static final String MODULE = "synthetic.Module";
+
+    private SyntheticModules() {
+    }
+
+    // 生成 count 个组件：组件 i 通过构造函数依赖组件 (i - 1) / 2，以及绑定它们的 synthetic.Module，打包为 jar
+    static Path generate(Path directory, int count) throws IOException {
+        Path sources = directory.resolve("sources/synthetic");
+        Path classes = directory.resolve("classes");
+        Files.createDirectories(sources);
+        Files.createDirectories(classes);
+
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String dependency = i == 0 ? "" : "C" + (i - 1) / 2 + " dependency";
+            files.add(write(sources.resolve("C" + i + ".java"), """
+                    package synthetic;
+
+                    public class C%d {
+                        @jakarta.inject.Inject
+                        public C%d(%s) {
+                        }
+                    }
+                    """.formatted(i, i, dependency)));
+        }
+        files.add(write(sources.resolve("Module.java"), """
+                package synthetic;
+
+                public class Module implements java.util.function.Supplier<kuan.tdd.di.ContextConfig> {
+                    @Override
+                    public kuan.tdd.di.ContextConfig get() {
+                        java.util.Map<Class<?>, Class<?>> bindings = new java.util.LinkedHashMap<>();
+                        try {
+                            for (int i = 0; i < %d; i++) {
+                                Class<?> type = Class.forName("synthetic.C" + i);
+                                bindings.put(type, type);
+                            }
+                        } catch (ClassNotFoundException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        kuan.tdd.di.ContextConfig config = new kuan.tdd.di.ContextConfig();
+                        config.bindAll(bindings);
+                        return config;
+                    }
+                }
+                """.formatted(count)));
+
+        compile(classes, files);
+        return jar(classes, directory.resolve("module.jar"));
+    }
+
+    static void compile(Path classes, List<String> files) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<>(List.of("-nowarn", "-proc:none",
+                "-cp", System.getProperty("java.class.path"), "-d", classes.toString()));
+        arguments.addAll(files);
+        if (compiler.run(null, null, null, arguments.toArray(String[]::new)) != 0) {
+            throw new IllegalStateException("Failed to compile synthetic components");
+        }
+    }
+
+    static Path jar(Path classes, Path jar) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+             Stream<Path> files = Files.walk(classes)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                try {
+                    out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                    Files.copy(file, out);
+                    out.closeEntry();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return jar;
+    }
+
+    private static String write(Path file, String source) throws IOException {
+        Files.writeString(file, source);
+        return file.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package kuan.tdd.di;
+
+import jakarta.inject.Named;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比大量绑定下，不带 Qualifier（按 Class 缓存）与带 Qualifier（按 Component 查 HashMap）的查找吞吐
+ *
+ * @author qinxuekuan
+ * @date 2022/7/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnqualifiedLookupBenchmark {
+
+    @Named("qualified")
+    private static Object qualifier;
+
+    @Param({"10000", "50000"})
+    int bindings;
+
+    private Context context;
+    private ComponentRef<?>[] unqualifiedRefs;
+    private ComponentRef<?>[] qualifiedRefs;
+    private int next;
+
+    @Setup
+    public void setup() throws NoSuchFieldException {
+        Named named = UnqualifiedLookupBenchmark.class.getDeclaredField("qualifier").getAnnotation(Named.class);
+        Class<?>[] types = SyntheticComponents.define(bindings);
+
+        ContextConfig config = new ContextConfig();
+        unqualifiedRefs = new ComponentRef<?>[types.length];
+        qualifiedRefs = new ComponentRef<?>[types.length];
+        for (int i = 0; i < types.length; i++) {
+            Class<Object> type = (Class<Object>) types[i];
+            config.bind(type, new Object());
+            config.bind(type, new Object(), named);
+            unqualifiedRefs[i] = ComponentRef.of(type);
+            qualifiedRefs[i] = ComponentRef.of(type, named);
+        }
+        context = config.getContext();
+    }
+
+    @Benchmark
+    public Object unqualified() {
+        return context.getOrNull(unqualifiedRefs[index()]);
+    }
+
+    @Benchmark
+    public Object qualified() {
+        return context.getOrNull(qualifiedRefs[index()]);
+    }
+
+    @Benchmark
+    public Object unqualifiedWithNewRef() {
+        return context.getOrNull(ComponentRef.of(unqualifiedRefs[index()].getComponent()));
+    }
+
+    private int index() {
+        int index = next;
+        next = index + 1 == unqualifiedRefs.length ? 0 : index + 1;
+        return index;
+    }
+}
@@ -0,0 +1,20 @@
+package kuan.tdd.di;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * 构造函数中由工厂方法在运行时传入的参数，其余参数仍由容器注入
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Assisted {
+}
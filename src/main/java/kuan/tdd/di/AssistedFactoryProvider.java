@@ -0,0 +1,167 @@
+package kuan.tdd.di;
+
+import jakarta.inject.Inject;
+import kuan.tdd.di.exception.IllegalComponentException;
+
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 由容器实现的工厂接口：创建工厂时解析一次构造函数中由容器管理的依赖，
+ * 调用工厂方法时把 @Assisted 参数直接传给构造函数。工厂类总是由 LambdaMetafactory 生成
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+class AssistedFactoryProvider<F> implements ComponentProvider<F> {
+
+    private final Class<F> factory;
+    private final Method method;
+    private final Constructor<?> injectConstructor;
+    private final ComponentRef<?>[] required;
+    // 由 LambdaMetafactory 生成的工厂类：(Object[] 依赖) -> F
+    private final MethodHandle generated;
+
+    public AssistedFactoryProvider(Class<F> factory, Class<?> implementation) {
+        if (!factory.isInterface() || Modifier.isAbstract(implementation.getModifiers())) {
+            throw new IllegalComponentException();
+        }
+        Method method = factoryMethod(factory, implementation);
+        Constructor<?> injectConstructor = injectConstructor(implementation);
+
+        Parameter[] parameters = injectConstructor.getParameters();
+        ComponentRef<?>[] refs = InjectionProvider.Injectable.of(injectConstructor, false).required();
+        List<ComponentRef<?>> required = new ArrayList<>();
+        List<Class<?>> dependencyTypes = new ArrayList<>();
+        List<Class<?>> assisted = new ArrayList<>();
+        int[] order = new int[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].isAnnotationPresent(Assisted.class)) {
+                assisted.add(parameters[i].getType());
+            } else {
+                order[i] = required.size();
+                required.add(refs[i]);
+                dependencyTypes.add(parameters[i].getType());
+            }
+        }
+        for (int i = 0, next = required.size(); i < parameters.length; i++) {
+            if (parameters[i].isAnnotationPresent(Assisted.class)) {
+                order[i] = next++;
+            }
+        }
+        if (!Arrays.equals(method.getParameterTypes(), assisted.toArray())) {
+            throw new IllegalComponentException();
+        }
+
+        this.factory = factory;
+        this.method = method;
+        this.injectConstructor = injectConstructor;
+        this.required = required.toArray(ComponentRef<?>[]::new);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(implementation, MethodHandles.lookup());
+            MethodHandle create = isIdentity(order)
+                    ? lookup.unreflectConstructor(injectConstructor)
+                    : reordered(lookup, injectConstructor, order, dependencyTypes, assisted);
+            MethodType erased = MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+            MethodHandle generated = LambdaMetafactory.metafactory(lookup, method.getName(),
+                    MethodType.methodType(factory, dependencyTypes), erased, create, erased).getTarget();
+            this.generated = generated.asSpreader(Object[].class, dependencyTypes.size())
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException | NoSuchMethodException | LambdaConversionException e) {
+            throw new IllegalComponentException();
+        }
+    }
+
+    @Override
+    public F get(Context context) {
+        Object[] dependencies = new Object[required.length];
+        for (int i = 0; i < required.length; i++) {
+            dependencies[i] = context.require(required[i]);
+        }
+        try {
+            return factory.cast((Object) generated.invokeExact(dependencies));
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<ComponentRef<?>> getDependencies() {
+        return List.of(required);
+    }
+
+    // 创建工厂时会通过反射使用的构造函数与工厂方法
+    List<Member> getMembers() {
+        return List.of(injectConstructor, method);
+    }
+
+    // 工厂接口只能有一个抽象方法，返回类型可以由实现类赋值
+    private static Method factoryMethod(Class<?> factory, Class<?> implementation) {
+        List<Method> methods = Arrays.stream(factory.getMethods())
+                .filter(m -> Modifier.isAbstract(m.getModifiers())).toList();
+        if (methods.size() != 1 || !methods.get(0).getReturnType().isAssignableFrom(implementation)) {
+            throw new IllegalComponentException();
+        }
+        return methods.get(0);
+    }
+
+    // 工厂只调用构造函数，不支持字段与方法注入
+    private static Constructor<?> injectConstructor(Class<?> implementation) {
+        List<Constructor<?>> constructors = Arrays.stream(implementation.getConstructors())
+                .filter(c -> c.isAnnotationPresent(Inject.class)).toList();
+        if (constructors.size() != 1 || !InjectionProvider.members(implementation).fields().isEmpty()
+                || !InjectionProvider.members(implementation).methods().isEmpty()) {
+            throw new IllegalComponentException();
+        }
+        return constructors.get(0);
+    }
+
+    private static boolean isIdentity(int[] order) {
+        for (int i = 0; i < order.length; i++) {
+            if (order[i] != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // LambdaMetafactory 只能捕获排在前面的参数，依赖不都在运行时参数之前时，
+    // 生成一个按 (依赖..., 运行时参数...) 接收参数、再按原来的顺序调用构造函数的静态方法。
+    // JDK 17 的 LambdaMetafactory 不能调用隐藏类中的静态方法，所以这个类是实现类所在包中的普通类，每个实现类只定义一次
+    private static MethodHandle reordered(MethodHandles.Lookup lookup, Constructor<?> constructor, int[] order,
+                                          List<Class<?>> dependencyTypes, List<Class<?>> assisted)
+            throws IllegalAccessException, NoSuchMethodException {
+        Class<?> implementation = constructor.getDeclaringClass();
+        MethodType type = MethodType.methodType(implementation, dependencyTypes).appendParameterTypes(assisted);
+        int[] slots = new int[type.parameterCount()];
+        for (int i = 1; i < slots.length; i++) {
+            slots[i] = slots[i - 1] + ClassFile.size(type.parameterType(i - 1));
+        }
+        String name = ClassFile.internal(implementation) + "$$Assisted";
+        ClassFile file = new ClassFile(name, "java/lang/Object");
+        String owner = ClassFile.internal(implementation);
+        ClassFile.Code code = new ClassFile.Code().indexed(0xbb, file.type(owner)).op(0x59);  // new, dup
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        int stack = 2;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            code.load(parameterTypes[i], slots[order[i]]);
+            stack += ClassFile.size(parameterTypes[i]);
+        }
+        code.indexed(0xb7, file.member(ClassFile.METHOD, owner, "<init>",
+                MethodType.methodType(void.class, parameterTypes).toMethodDescriptorString())).op(0xb0);  // invokespecial, areturn
+        file.method(Modifier.PUBLIC | Modifier.STATIC, "create", type.toMethodDescriptorString(), stack, stack - 2, code);
+
+        Class<?> bridge;
+        synchronized (AssistedFactoryProvider.class) {
+            try {
+                bridge = lookup.findClass(name.replace('/', '.'));
+            } catch (ClassNotFoundException e) {
+                bridge = lookup.defineClass(file.toByteArray());
+            }
+        }
+        return lookup.findStatic(bridge, "create", type);
+    }
+}
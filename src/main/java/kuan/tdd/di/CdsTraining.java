@@ -0,0 +1,91 @@
+package kuan.tdd.di;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * AppCDS 的训练模式：创建 Context 并把每个组件实例化一次。
+ * 配合 -XX:ArchiveClassesAtExit 运行可以得到动态 CDS 归档，也可以写出组件类与容器类的 class list
+ *
+ * @author qinxuekuan
+ * @date 2022/7/22
+ */
+public final class CdsTraining {
+
+    private CdsTraining() {
+    }
+
+    // 参数：提供 ContextConfig 的 Supplier 实现类名，可选的 class list 输出路径
+    public static void main(String[] args) throws ReflectiveOperationException, IOException {
+        Supplier<ContextConfig> module = (Supplier<ContextConfig>) Class.forName(args[0])
+                .getDeclaredConstructor().newInstance();
+        Set<Class<?>> classes = train(module.get());
+        if (args.length > 1) {
+            Path output = Path.of(args[1]);
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            Files.write(output, classes.stream().map(type -> type.getName().replace('.', '/')).toList());
+        }
+    }
+
+    static Set<Class<?>> train(ContextConfig config) throws IOException {
+        Context context = config.getContext();
+        Set<Class<?>> classes = new LinkedHashSet<>(containerClasses());
+        for (Component component : ((ComponentContext) context).getComponents()) {
+            classes.add(component.type());
+            Object instance = context.require(ComponentRef.of(component.type(), component.qualifier()));
+            for (Class<?> type = instance.getClass(); type != Object.class; type = type.getSuperclass()) {
+                // 代理类与 hidden class 无法放入归档
+                if (Proxy.isProxyClass(type) || type.isHidden()) {
+                    break;
+                }
+                classes.add(type);
+            }
+        }
+        return classes;
+    }
+
+    private static List<Class<?>> containerClasses() throws IOException {
+        Path location;
+        try {
+            location = Path.of(CdsTraining.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+        if (Files.isDirectory(location)) {
+            return containerClasses(location);
+        }
+        try (FileSystem jar = FileSystems.newFileSystem(location)) {
+            return containerClasses(jar.getPath("/"));
+        }
+    }
+
+    private static List<Class<?>> containerClasses(Path root) throws IOException {
+        String packagePath = CdsTraining.class.getPackageName().replace('.', '/');
+        try (Stream<Path> files = Files.walk(root.resolve(packagePath))) {
+            return files.map(file -> root.relativize(file).toString().replace('\\', '/'))
+                    .filter(name -> name.endsWith(".class"))
+                    .map(name -> name.substring(0, name.length() - ".class".length()).replace('/', '.'))
+                    .sorted()
+                    .<Class<?>>map(CdsTraining::load)
+                    .toList();
+        }
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name, false, CdsTraining.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
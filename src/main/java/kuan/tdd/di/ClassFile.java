@@ -0,0 +1,203 @@
+package kuan.tdd.di;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 写出定义隐藏类所需的最小 class 文件：常量池、字段与方法，方法中只有顺序执行的代码，不需要 StackMapTable。
+ * JDK 17 没有 ClassFile API，也不引入字节码库
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+final class ClassFile {
+
+    static final int FIELD = 9;
+    static final int METHOD = 10;
+    static final int INTERFACE_METHOD = 11;
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private int count = 1;
+
+    private final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+    private int fieldCount;
+    private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+    private int methodCount;
+
+    private final int thisClass;
+    private final int superClass;
+    private final int[] interfaces;
+
+    ClassFile(String name, String superName, String... interfaceNames) {
+        thisClass = type(name);
+        superClass = type(superName);
+        interfaces = new int[interfaceNames.length];
+        for (int i = 0; i < interfaceNames.length; i++) {
+            interfaces[i] = type(interfaceNames[i]);
+        }
+    }
+
+    int utf8(String value) {
+        return constant("U" + value, out -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+        });
+    }
+
+    int type(String name) {
+        int utf8 = utf8(name);
+        return constant("C" + name, out -> {
+            out.writeByte(7);
+            out.writeShort(utf8);
+        });
+    }
+
+    // tag：FIELD、METHOD 或 INTERFACE_METHOD
+    int member(int tag, String owner, String name, String descriptor) {
+        int type = type(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("N" + name + descriptor, out -> {
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return constant(tag + owner + "." + name + descriptor, out -> {
+            out.writeByte(tag);
+            out.writeShort(type);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    void field(int access, String name, String descriptor) {
+        write(fields, out -> {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        });
+        fieldCount++;
+    }
+
+    void method(int access, String name, String descriptor, int maxStack, int maxLocals, Code code) {
+        byte[] bytes = code.bytes.toByteArray();
+        int codeName = utf8("Code");
+        write(methods, out -> {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + bytes.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeShort(0);
+            out.writeShort(0);
+        });
+        methodCount++;
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(bytes, out -> {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(61);
+            out.writeShort(count);
+            pool.writeTo(out);
+            out.writeShort(Modifier.PUBLIC | Modifier.FINAL | 0x0020);  // ACC_SUPER
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.length);
+            for (int index : interfaces) {
+                out.writeShort(index);
+            }
+            out.writeShort(fieldCount);
+            fields.writeTo(out);
+            out.writeShort(methodCount);
+            methods.writeTo(out);
+            out.writeShort(0);
+        });
+        return bytes.toByteArray();
+    }
+
+    private int constant(String key, Writing writing) {
+        Integer index = indexes.get(key);
+        if (index == null) {
+            write(pool, writing);
+            index = count++;
+            indexes.put(key, index);
+        }
+        return index;
+    }
+
+    private static void write(ByteArrayOutputStream bytes, Writing writing) {
+        try {
+            writing.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface Writing {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    static String internal(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    // 加载与返回指令相对 int 版本的偏移：int 0，long 1，float 2，double 3，引用 4
+    private static int kind(Class<?> type) {
+        if (type == long.class) {
+            return 1;
+        }
+        if (type == float.class) {
+            return 2;
+        }
+        if (type == double.class) {
+            return 3;
+        }
+        return type.isPrimitive() ? 0 : 4;
+    }
+
+    // 参数在局部变量表中占用的位置数
+    static int size(Class<?> type) {
+        return type == long.class || type == double.class ? 2 : 1;
+    }
+
+    // 一个方法的字节码
+    static final class Code {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Code op(int... opcodes) {
+            for (int opcode : opcodes) {
+                bytes.write(opcode);
+            }
+            return this;
+        }
+
+        // 带两字节常量池下标的指令
+        Code indexed(int opcode, int index) {
+            return op(opcode, index >>> 8, index & 0xff);
+        }
+
+        // iload / lload / fload / dload / aload
+        Code load(Class<?> type, int slot) {
+            return op(0x15 + kind(type), slot);
+        }
+
+        // return / ireturn / lreturn / freturn / dreturn / areturn
+        Code returns(Class<?> type) {
+            return op(type == void.class ? 0xb1 : 0xac + kind(type));
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package kuan.tdd.di;
+
+import jakarta.inject.Provider;
+import kuan.tdd.di.exception.CyclicDependenciesFoundException;
+import kuan.tdd.di.exception.DependencyNotFoundException;
+import kuan.tdd.di.exception.IllegalComponentException;
+import kuan.tdd.di.exception.LifecycleException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * @author qinxuekuan
+ * @date 2022/7/16
+ */
+class ComponentContext implements Context {
+
+    static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    // 替换绑定时复制出一张新的解析表整体发布（read-copy-update）：读取不加锁，
+    // 一次解析从开始到结束都使用同一张表，不会看到更新了一半的依赖图
+    private volatile Table table;
+
+    // 采样解析过程的设置，没有开启时为 null
+    private volatile Tracer tracer;
+
+    private record Tracer(Predicate<ComponentRef<?>> sampler, TraceListener listener) {
+    }
+
+    // 自适应融合：统计各组件的顶层解析次数，没有开启时为 null
+    private volatile Profile profile;
+
+    private record Profile(int threshold, Map<Component, AtomicInteger> counts) {
+    }
+
+    // 组件的使用记录，没有开启时为 null；每张解析表创建时取当时的记录
+    private volatile Usage usage;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    // 由这个 Context 创建、只在这个 Context 中使用的作用域 provider，关闭时销毁其中的实例
+    private final Set<ComponentProvider<?>> owned = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    // 为替换的实现类创建 provider，Scope 与 Lazy 的处理与 ContextConfig 绑定时一致
+    private final BiFunction<Class<?>, Class<?>, ComponentProvider<?>> binder;
+
+    ComponentContext(Map<Component, ComponentProvider<?>> components,
+                     BiFunction<Class<?>, Class<?>, ComponentProvider<?>> binder) {
+        this.binder = binder;
+        this.table = new Table(renew(components, components.keySet()));
+    }
+
+    // 由同一个 ContextConfig 得到的 Context（包括裁剪后的 Context）各自持有作用域中的实例：
+    // 创建时重建作用域 provider，不会销毁或取到其他 Context 中的实例。替换依赖时也用它重建依赖方。
+    // 绑定在多个 Component 上的 provider 只重建一次，这些 Component 仍然共用同一个实例
+    private Map<Component, ComponentProvider<?>> renew(Map<Component, ComponentProvider<?>> components,
+                                                       Collection<Component> renewing) {
+        Map<ComponentProvider<?>, ComponentProvider<?>> providers = new IdentityHashMap<>();
+        Map<Component, ComponentProvider<?>> renewed = new HashMap<>(components);
+        for (Component component : renewing) {
+            if (components.get(component) instanceof ScopedProvider<?> scoped) {
+                renewed.put(component, providers.computeIfAbsent(scoped, p -> {
+                    ScopedProvider<?> provider = scoped.renew();
+                    if (provider != scoped) {
+                        owned.remove(scoped);
+                        owned.add(provider);
+                    }
+                    return provider;
+                }));
+            }
+        }
+        return renewed;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> ref) {
+        return Optional.ofNullable(getOrNull(ref));
+    }
+
+    @Override
+    public <ComponentType> ComponentType require(ComponentRef<ComponentType> ref) {
+        profile(ref);
+        Tracer current = tracer;
+        if (current != null && current.sampler().test(ref)) {
+            return traced(current, ref, true);
+        }
+        return current().require(ref);
+    }
+
+    @Override
+    public <ComponentType> ComponentType getOrNull(ComponentRef<ComponentType> ref) {
+        profile(ref);
+        Tracer current = tracer;
+        if (current != null && current.sampler().test(ref)) {
+            return traced(current, ref, false);
+        }
+        return current().getOrNull(ref);
+    }
+
+    @Override
+    public void trace(Predicate<ComponentRef<?>> sampler, TraceListener listener) {
+        tracer = sampler == null ? null : new Tracer(sampler, listener);
+    }
+
+    @Override
+    public void specialize(int threshold) {
+        profile = threshold <= 0 ? null : new Profile(threshold, new ConcurrentHashMap<>());
+    }
+
+    private void profile(ComponentRef<?> ref) {
+        Profile current = profile;
+        if (current != null && !ref.isContainer()) {
+            int count = current.counts().computeIfAbsent(ref.component(), c -> new AtomicInteger()).incrementAndGet();
+            if (count == current.threshold()) {
+                fuse(ref.component());
+            }
+        }
+    }
+
+    // 把达到阈值的原型组件换成融合后的 provider，发布新的解析表。
+    // 记录使用情况时不融合：融合后的 provider 不再查找子树中的依赖，记录不到它们
+    private synchronized void fuse(Component component) {
+        if (usage != null) {
+            return;
+        }
+        Table current = table;
+        ComponentProvider<?> provider = current.components.get(component);
+        FusedProvider<?> fused = provider == null ? null : FusedProvider.fuse(provider, current::provider, current);
+        if (fused != null) {
+            Map<Component, ComponentProvider<?>> components = new HashMap<>(current.components);
+            components.put(component, fused);
+            table = new Table(components);
+        }
+    }
+
+    private <ComponentType> ComponentType traced(Tracer tracer, ComponentRef<ComponentType> ref, boolean required) {
+        Table current = current();
+        TracingContext context = new TracingContext(current::provider, current);
+        ComponentType instance = required ? context.require(ref) : context.getOrNull(ref);
+        if (!context.dependencies().isEmpty()) {
+            tracer.listener().traced(context.dependencies().get(0));
+        }
+        return instance;
+    }
+
+    @Override
+    public Object[] resolve(ComponentRef<?>... refs) {
+        return current().resolve(refs);
+    }
+
+    // Resolver 使用创建它时的解析表
+    @Override
+    public Resolver resolver(ComponentRef<?>... refs) {
+        return current().resolver(refs);
+    }
+
+    @Override
+    public <ComponentType> ComponentType[] create(ComponentRef<ComponentType> ref, ComponentType[] instances) {
+        return current().create(ref, instances);
+    }
+
+    @Override
+    public <T> T injectMembers(T instance) {
+        return current().injectMembers(instance);
+    }
+
+    // 关闭后作用域中的实例已经销毁，不再解析组件
+    private Table current() {
+        if (closed.get()) {
+            throw new LifecycleException("Context is closed");
+        }
+        return table;
+    }
+
+    @Override
+    public <ComponentType> void swap(ComponentRef<ComponentType> ref, ComponentType instance, SwapPolicy policy) {
+        publish(ref, context -> instance, policy);
+    }
+
+    @Override
+    public <ComponentType, Implementation extends ComponentType>
+    void swap(ComponentRef<ComponentType> ref, Class<Implementation> implementation, SwapPolicy policy) {
+        publish(ref, binder.apply(ref.getComponent(), implementation), policy);
+    }
+
+    // 只检查新 provider 能到达的依赖：其余组件的依赖没有变化，新的循环依赖也一定经过被替换的组件
+    private synchronized void publish(ComponentRef<?> ref, ComponentProvider<?> provider, SwapPolicy policy) {
+        if (ref.isContainer()) {
+            throw new IllegalComponentException();
+        }
+        Component component = ref.component();
+        Map<Component, ComponentProvider<?>> components = new HashMap<>(table.components);
+        if (!components.containsKey(component)) {
+            throw new DependencyNotFoundException(component);
+        }
+        // 融合后的 provider 持有旧的依赖，恢复为原来的 provider，重新统计
+        components.replaceAll((c, p) -> p instanceof FusedProvider<?> fused ? fused.original() : p);
+        Profile current = profile;
+        if (current != null) {
+            current.counts().clear();
+        }
+        components.put(component, provider);
+        Stack<Component> visiting = new Stack<>();
+        visiting.push(component);
+        check(components, component, visiting, new HashSet<>());
+
+        if (policy == SwapPolicy.RENEW_DEPENDENTS) {
+            components = renew(components, dependents(components, component));
+        }
+        if (provider instanceof ScopedProvider<?>) {
+            owned.add(provider);
+        }
+        table = new Table(components);
+    }
+
+    private static void check(Map<Component, ComponentProvider<?>> components, Component component,
+                              Stack<Component> visiting, Set<Component> checked) {
+        if (!checked.add(component)) {
+            return;
+        }
+        for (ComponentRef<?> dependency : components.get(component).getDependencies()) {
+            if (!components.containsKey(dependency.component())) {
+                throw new DependencyNotFoundException(component, dependency.component());
+            }
+            if (!dependency.isContainer()) {
+                if (visiting.contains(dependency.component())) {
+                    throw new CyclicDependenciesFoundException(visiting);
+                }
+                visiting.push(dependency.component());
+                check(components, dependency.component(), visiting, checked);
+                visiting.pop();
+            }
+        }
+    }
+
+    // 直接或间接（不经过 Provider）依赖了 component 的组件，它们已经创建的实例持有旧的依赖
+    private static Set<Component> dependents(Map<Component, ComponentProvider<?>> components, Component component) {
+        Map<Component, List<Component>> reverse = new HashMap<>();
+        components.forEach((current, provider) -> provider.getDependencies().stream()
+                .filter(dependency -> !dependency.isContainer())
+                .forEach(dependency -> reverse.computeIfAbsent(dependency.component(), c -> new ArrayList<>()).add(current)));
+        Set<Component> dependents = new LinkedHashSet<>();
+        Deque<Component> visiting = new ArrayDeque<>(reverse.getOrDefault(component, List.of()));
+        while (!visiting.isEmpty()) {
+            Component current = visiting.pop();
+            if (dependents.add(current)) {
+                visiting.addAll(reverse.getOrDefault(current, List.of()));
+            }
+        }
+        return dependents;
+    }
+
+    // 融合后的 provider 不再查找子树中的依赖，恢复为原来的 provider，保证每次解析都会经过记录
+    @Override
+    public synchronized void trackUsage(String role) {
+        Map<Component, ComponentProvider<?>> components = new HashMap<>(table.components);
+        components.replaceAll((c, p) -> p instanceof FusedProvider<?> fused ? fused.original() : p);
+        Profile current = profile;
+        if (current != null) {
+            current.counts().clear();
+        }
+        usage = new Usage(role, components.keySet());
+        table = new Table(components);
+    }
+
+    @Override
+    public UsageReport usage() {
+        Usage current = usage;
+        if (current == null) {
+            throw new IllegalStateException("Usage tracking is not enabled");
+        }
+        return current.report();
+    }
+
+    @Override
+    public HeapReport retainedHeap(SizeEstimator estimator) {
+        return new RetainedHeap(estimator).report(table.components);
+    }
+
+    // 当前解析表中 ref 对应的 provider
+    ComponentProvider<?> provider(ComponentRef<?> ref) {
+        return table.provider(ref);
+    }
+
+    Set<Component> getComponents() {
+        return table.components.keySet();
+    }
+
+    @Override
+    public void initialize() {
+        Table current = current();
+        for (List<Component> level : levels(current.components)) {
+            Workers.invokeAll(level.stream().map(current.components::get).distinct()
+                    .filter(provider -> provider instanceof ScopedProvider)
+                    .map(provider -> (Callable<?>) () -> provider.get(current))
+                    .toArray(Callable<?>[]::new));
+        }
+    }
+
+    @Override
+    public void close() {
+        close(SHUTDOWN_TIMEOUT);
+    }
+
+    @Override
+    public void close(Duration timeout) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        Map<Component, ComponentProvider<?>> components = table.components;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<List<Component>> levels = levels(components);
+        List<Throwable> failures = new ArrayList<>();
+        // 绑定在多个 Qualifier 下的是同一个 provider，其中的实例只销毁一次；不是由这个 Context 创建的 provider 不销毁
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            List<Runnable> destroying = new ArrayList<>();
+            for (Component component : levels.get(i)) {
+                if (components.get(component) instanceof ScopedProvider<?> provider && owned.remove(provider)) {
+                    destroying.addAll(destroying(provider));
+                }
+            }
+            try {
+                failures.addAll(Workers.runAll(destroying, deadline));
+            } catch (TimeoutException e) {
+                throw failed(MessageFormat.format("Shutdown exceeded {0}", timeout), failures);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw failed("Shutdown failed", failures);
+        }
+    }
+
+    private static <T> List<Runnable> destroying(ScopedProvider<T> provider) {
+        return provider.instances().stream().map(instance -> (Runnable) () -> provider.destroy(instance)).toList();
+    }
+
+    private static LifecycleException failed(String message, List<Throwable> failures) {
+        LifecycleException exception = new LifecycleException(message);
+        failures.forEach(exception::addSuppressed);
+        return exception;
+    }
+
+    // 按依赖分层：没有依赖的组件在第 0 层，其余组件比它依赖的组件至少高一层；Provider 依赖不影响分层
+    private static List<List<Component>> levels(Map<Component, ComponentProvider<?>> components) {
+        Map<Component, Integer> levels = new HashMap<>();
+        components.keySet().forEach(component -> level(components, component, levels));
+        List<List<Component>> layered = new ArrayList<>();
+        levels.forEach((component, level) -> {
+            while (layered.size() <= level) {
+                layered.add(new ArrayList<>());
+            }
+            layered.get(level).add(component);
+        });
+        return layered;
+    }
+
+    private static int level(Map<Component, ComponentProvider<?>> components, Component component,
+                             Map<Component, Integer> levels) {
+        Integer level = levels.get(component);
+        if (level != null) {
+            return level;
+        }
+        int current = 0;
+        for (ComponentRef<?> dependency : components.get(component).getDependencies()) {
+            if (!dependency.isContainer() && components.containsKey(dependency.component())) {
+                current = Math.max(current, level(components, dependency.component(), levels) + 1);
+            }
+        }
+        levels.put(component, current);
+        return current;
+    }
+
+    // 一张不可变的解析表，组件的依赖在同一张表中解析
+    private class Table implements Context {
+        private final Map<Component, ComponentProvider<?>> components;
+
+        private final Usage usage = ComponentContext.this.usage;
+
+        // 不带 Qualifier 的查找占绝大多数，按 Class 的 identity 直接取到 provider，省去 Component 的 hash 与比较。
+        // 不能用 ClassValue：值挂在 Class 上，注入的 Provider 又引用回解析表，整个 Context 会随 Class 一直存活
+        private final Map<Class<?>, ComponentProvider<?>> unqualified = new IdentityHashMap<>();
+
+        Table(Map<Component, ComponentProvider<?>> components) {
+            this.components = components;
+            components.forEach((component, provider) -> {
+                if (component.qualifier() == null) {
+                    unqualified.put(component.type(), provider);
+                }
+            });
+        }
+
+        @Override
+        public <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> ref) {
+            return Optional.ofNullable(getOrNull(ref));
+        }
+
+        @Override
+        public <ComponentType> ComponentType require(ComponentRef<ComponentType> ref) {
+            ComponentProvider<?> provider = provider(ref);
+            if (provider == null) {
+                throw new DependencyNotFoundException(ref.component());
+            }
+            return (ComponentType) provider.get(this);
+        }
+
+        @Override
+        public <ComponentType> ComponentType getOrNull(ComponentRef<ComponentType> ref) {
+            ComponentProvider<?> provider = provider(ref);
+            return provider == null ? null : (ComponentType) provider.get(this);
+        }
+
+        @Override
+        public Object[] resolve(ComponentRef<?>... refs) {
+            return resolver(refs).resolve();
+        }
+
+        @Override
+        public Resolver resolver(ComponentRef<?>... refs) {
+            ComponentProvider<?>[] providers = Arrays.stream(refs).map(this::provider).toArray(ComponentProvider<?>[]::new);
+            return new Resolver() {
+                @Override
+                public Object[] resolve() {
+                    Object[] instances = new Object[providers.length];
+                    resolve(instances);
+                    return instances;
+                }
+
+                @Override
+                public void resolve(Object[] instances) {
+                    for (int i = 0; i < providers.length; i++) {
+                        instances[i] = providers[i] == null ? null : providers[i].get(Table.this);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public <ComponentType> ComponentType[] create(ComponentRef<ComponentType> ref, ComponentType[] instances) {
+            ComponentProvider<?> provider = provider(ref);
+            if (provider == null) {
+                throw new DependencyNotFoundException(ref.component());
+            }
+            if (provider instanceof InjectionProvider<?> injection) {
+                injection.create(this, instances, this::isShared);
+                return instances;
+            }
+            for (int i = 0; i < instances.length; i++) {
+                instances[i] = (ComponentType) provider.get(this);
+            }
+            return instances;
+        }
+
+        // 同一个 Context 中，作用域中的组件与 Provider 每次解析的结果可以共用
+        private boolean isShared(ComponentRef<?> ref) {
+            return ref.isContainer() || provider(ref) instanceof ScopedProvider;
+        }
+
+        @Override
+        public <T> T injectMembers(T instance) {
+            try {
+                InjectionProvider.members(instance.getClass()).inject(instance, this);
+                return instance;
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        // ref 所对应的 provider：Provider 容器包装成返回 Provider 的 provider，其他容器不支持，返回 null。
+        // 注入的 Provider 每次 get 都使用最新的解析表，替换绑定后可以取到新的组件
+        ComponentProvider<?> provider(ComponentRef<?> ref) {
+            ComponentProvider<?> provider = ref.getQualifier() == null
+                    ? unqualified.get(ref.getComponent())
+                    : components.get(ref.component());
+            if (provider == null || !ref.isContainer()) {
+                if (usage != null && provider != null) {
+                    usage.mark(ref);
+                }
+                return provider;
+            }
+            if (ref.container() != Provider.class) {
+                return null;
+            }
+            Component component = ref.component();
+            return context -> (Provider<Object>) () -> ComponentContext.this.current().require(component);
+        }
+
+        private Object require(Component component) {
+            ComponentProvider<?> provider = components.get(component);
+            if (provider == null) {
+                throw new DependencyNotFoundException(component);
+            }
+            if (usage != null) {
+                usage.mark(component);
+            }
+            return provider.get(this);
+        }
+
+        @Override
+        public <ComponentType> void swap(ComponentRef<ComponentType> ref, ComponentType instance, SwapPolicy policy) {
+            ComponentContext.this.swap(ref, instance, policy);
+        }
+
+        @Override
+        public <ComponentType, Implementation extends ComponentType>
+        void swap(ComponentRef<ComponentType> ref, Class<Implementation> implementation, SwapPolicy policy) {
+            ComponentContext.this.swap(ref, implementation, policy);
+        }
+
+        @Override
+        public void trace(Predicate<ComponentRef<?>> sampler, TraceListener listener) {
+            ComponentContext.this.trace(sampler, listener);
+        }
+
+        @Override
+        public void specialize(int threshold) {
+            ComponentContext.this.specialize(threshold);
+        }
+
+        @Override
+        public void trackUsage(String role) {
+            ComponentContext.this.trackUsage(role);
+        }
+
+        @Override
+        public UsageReport usage() {
+            return ComponentContext.this.usage();
+        }
+
+        @Override
+        public HeapReport retainedHeap(SizeEstimator estimator) {
+            return ComponentContext.this.retainedHeap(estimator);
+        }
+
+        @Override
+        public void initialize() {
+            ComponentContext.this.initialize();
+        }
+
+        @Override
+        public void close(Duration timeout) {
+            ComponentContext.this.close(timeout);
+        }
+
+        @Override
+        public void close() {
+            ComponentContext.this.close();
+        }
+    }
+}
@@ -12,4 +12,8 @@ interface ComponentProvider<T> {
     default List<ComponentRef<?>> getDependencies() {
         return List.of();
     }
+
+    // 销毁由这个 provider 创建的实例，例如调用 PreDestroy 方法
+    default void destroy(T instance) {
+    }
 }
@@ -0,0 +1,21 @@
+package kuan.tdd.di;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * 标注在组件、Inject 构造函数或 Inject 方法上，该注入点的多个参数会被同时解析，
+ * 任一参数解析失败，其余参数的解析会被取消
+ *
+ * @author qinxuekuan
+ * @date 2022/7/18
+ */
+@Documented
+@Retention(RUNTIME)
+@Target({ElementType.TYPE, ElementType.CONSTRUCTOR, ElementType.METHOD})
+public @interface Concurrent {
+}
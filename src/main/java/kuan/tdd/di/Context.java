@@ -1,14 +1,78 @@
 package kuan.tdd.di;
 
+import kuan.tdd.di.exception.DependencyNotFoundException;
+
+import java.time.Duration;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 /**
  * @author qinxuekuan
  * @date 2022/6/15
  */
-public interface Context {
+public interface Context extends AutoCloseable {
 
     // 期望得到这样的一个方法： Optional get(Ref type)，  Ref 是对 Class 和 ParameterizedType 的封装
     <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> ref);
 
+    // 组件必须存在，否则抛出 DependencyNotFoundException
+    default <ComponentType> ComponentType require(ComponentRef<ComponentType> ref) {
+        return get(ref).orElseThrow(() -> new DependencyNotFoundException(ref.component()));
+    }
+
+    // 组件不存在时返回 null
+    default <ComponentType> ComponentType getOrNull(ComponentRef<ComponentType> ref) {
+        return get(ref).orElse(null);
+    }
+
+    // 一次解析多个 ref，结果按 refs 的顺序放入数组，无法解析的 ref 对应位置为 null
+    Object[] resolve(ComponentRef<?>... refs);
+
+    Resolver resolver(ComponentRef<?>... refs);
+
+    // 创建 instances.length 个组件实例放入 instances，作用域中的依赖与 Provider 在整批实例中只解析一次
+    <ComponentType> ComponentType[] create(ComponentRef<ComponentType> ref, ComponentType[] instances);
+
+    // 为由外部创建的实例注入字段与方法，每个类的注入计划只扫描一次，不调用构造函数与 PostConstruct
+    <T> T injectMembers(T instance);
+
+    // 在运行中的 Context 里原子地替换 ref 对应的绑定：只检查受影响的依赖，进行中的解析不受影响
+    <ComponentType> void swap(ComponentRef<ComponentType> ref, ComponentType instance, SwapPolicy policy);
+
+    <ComponentType, Implementation extends ComponentType>
+    void swap(ComponentRef<ComponentType> ref, Class<Implementation> implementation, SwapPolicy policy);
+
+    // 被 sampler 选中的 get / require / getOrNull 调用，解析完成后把完整的解析树交给 listener；
+    // 没被选中的调用不做任何记录。sampler 为 null 时停止采样
+    void trace(Predicate<ComponentRef<?>> sampler, TraceListener listener);
+
+    // 自适应融合：被顶层解析 threshold 次的原型组件，把构造它的整棵原型子树融合成一次调用，透明地替换进解析表。
+    // 只通过构造函数注入的组件会被内联，Singleton 依赖作为常量；threshold <= 0 时关闭
+    void specialize(int threshold);
+
+    // 开始记录哪些组件被直接或间接解析过，role 标记这次运行的角色；再次调用会重新开始记录。
+    // 没有开启时解析不受影响
+    void trackUsage(String role);
+
+    // 到目前为止的使用情况，没有开启记录时抛出 IllegalStateException
+    UsageReport usage();
+
+    // 估算作用域中各组件实例的保留大小，不需要 heap dump
+    HeapReport retainedHeap(SizeEstimator estimator);
+
+    default HeapReport retainedHeap() {
+        return retainedHeap(SizeEstimator.layout());
+    }
+
+    // 按依赖层次逐层创建作用域中的组件（如 Singleton），同一层的组件并发创建
+    void initialize();
+
+    // 按依赖的逆序逐层销毁作用域中的实例，同一层的实例并发销毁，总耗时不超过 timeout。
+    // 只销毁这个 Context 自己的实例，绑定在多个 Qualifier 下的实例只销毁一次；
+    // 重复关闭不做任何事，关闭后解析组件会抛出 LifecycleException，ContextConfig.getContext 会重新创建 Context
+    void close(Duration timeout);
+
+    @Override
+    void close();
+
 }
@@ -0,0 +1,94 @@
+package kuan.tdd.di;
+
+import java.util.*;
+
+/**
+ * 在同一个 JVM 中复用 ContextConfig 的构建结果（如测试中大量相同的配置）：
+ * 实现类的注入分析按类复用，依赖检查的结果按配置的指纹（绑定、Qualifier、Scope 与实例的同一性）复用。
+ * 每次得到的 Context 仍然是新的，作用域中的实例不会在配置之间共享
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+public class ContextCache {
+
+    private final int maximumSize;
+    private final Map<Class<?>, InjectionProvider<?>> injections;
+    private final Map<Fingerprint, Map<Component, Set<Component>>> validated;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // 注入分析与依赖检查结果各自最多保留 maximumSize 个，超出时淘汰最久未使用的
+    public ContextCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.injections = lru();
+        this.validated = lru();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions);
+    }
+
+    // 注入分析在锁外进行，并行分析不同的实现类时不会互相等待；同一个类被同时分析时保留先放入的结果
+    InjectionProvider<?> injection(Class<?> implementation) {
+        synchronized (this) {
+            InjectionProvider<?> injection = injections.get(implementation);
+            if (injection != null) {
+                return injection;
+            }
+        }
+        InjectionProvider<?> injection = new InjectionProvider<>(implementation);
+        synchronized (this) {
+            InjectionProvider<?> existing = injections.putIfAbsent(implementation, injection);
+            return existing == null ? injection : existing;
+        }
+    }
+
+    synchronized Map<Component, Set<Component>> validated(Fingerprint fingerprint) {
+        Map<Component, Set<Component>> dependents = validated.get(fingerprint);
+        if (dependents == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return dependents;
+    }
+
+    synchronized void validated(Fingerprint fingerprint, Map<Component, Set<Component>> dependents) {
+        Map<Component, Set<Component>> copy = new HashMap<>();
+        dependents.forEach((component, dependent) -> copy.put(component, Set.copyOf(dependent)));
+        validated.put(fingerprint, Collections.unmodifiableMap(copy));
+    }
+
+    private <K, V> Map<K, V> lru() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > maximumSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // 作用域只按注解与 ScopeProvider 的类比较：依赖检查的结果与作用域的具体行为无关，
+    // 每次配置时重新创建的（捕获了变量的）ScopeProvider 也能命中
+    record Fingerprint(Map<Component, Object> bindings, Map<Class<?>, Class<?>> scopes) {
+
+        static Fingerprint of(Map<Component, Object> bindings, Map<Class<?>, ScopeProvider> scopes) {
+            Map<Class<?>, Class<?>> types = new HashMap<>();
+            scopes.forEach((scope, provider) -> types.put(scope, provider.getClass()));
+            return new Fingerprint(Map.copyOf(bindings), Map.copyOf(types));
+        }
+    }
+
+    // hits 与 misses 只统计依赖检查结果的复用，evictions 包括注入分析与依赖检查结果的淘汰
+    public record Stats(long hits, long misses, long evictions) {
+    }
+}
@@ -1,6 +1,5 @@
 package kuan.tdd.di;
 
-import jakarta.inject.Provider;
 import jakarta.inject.Qualifier;
 import jakarta.inject.Scope;
 import jakarta.inject.Singleton;
@@ -9,8 +8,11 @@ import kuan.tdd.di.exception.DependencyNotFoundException;
 import kuan.tdd.di.exception.IllegalComponentException;
 
 import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -20,23 +22,58 @@ import java.util.stream.Stream;
  */
 public class ContextConfig {
     private final Map<Component, ComponentProvider<?>> components = new HashMap<>();
-    private Map<Class<?>, ScopeProvider> scopes = new HashMap<>();
+    // 通过实现类绑定的组件，及其注入方式（构造函数、字段与方法）
+    private final Map<Component, InjectionProvider<?>> injections = new HashMap<>();
+    private final Map<Class<?>, ScopeProvider> scopes = new ConcurrentHashMap<>();
+
+    // 已通过检查的组件，及检查时记录下的反向依赖：绑定变化时，只需重新检查依赖了它的组件
+    private final Set<Component> validated = new HashSet<>();
+    private final Map<Component, Set<Component>> dependents = new HashMap<>();
+    private Context context;
+
+    // 可选的缓存：复用实现类的注入分析，以及相同配置的依赖检查结果
+    private final ContextCache cache;
+    // 每个组件绑定的描述，用于计算配置的指纹
+    private final Map<Component, Object> bindings = new HashMap<>();
+
+    // 并发模式下，重复绑定同一个 Component 会抛出异常，而不是覆盖之前的绑定
+    private final boolean concurrent;
 
     public ContextConfig() {
+        this(null);
+    }
+
+    public ContextConfig(ContextCache cache) {
+        this(cache, false);
+    }
+
+    private ContextConfig(ContextCache cache, boolean concurrent) {
+        this.cache = cache;
+        this.concurrent = concurrent;
         scope(Singleton.class, SingletonProvider::new);
     }
 
+    // 多个线程可以同时调用 bind 与 scope（例如并行注册各个插件模块）：实现类的分析在各自线程中完成，
+    // 注册时一次 bind 的所有 Component 原子地加入。同一个 Component 被绑定两次时，
+    // 无论线程如何交错，都恰好有一次 bind 成功，另一次抛出 ContextConfigException
+    public static ContextConfig concurrent() {
+        return concurrent(null);
+    }
+
+    public static ContextConfig concurrent(ContextCache cache) {
+        return new ContextConfig(cache, true);
+    }
+
     public <T> void bind(Class<T> type, T instance) {
-        components.put(new Component(type, null), context -> instance);
+        put(List.of(new Component(type, null)), context -> instance, new Instance(instance), null);
     }
 
     public <T> void bind(Class<T> type, T instance, Annotation... qualifiers) {
         if (Arrays.stream(qualifiers).anyMatch(q -> !q.annotationType().isAnnotationPresent(Qualifier.class))) {
             throw new IllegalComponentException();
         }
-        for (Annotation qualifier : qualifiers) {
-            components.put(new Component(type, qualifier), context -> instance);
-        }
+        put(Arrays.stream(qualifiers).map(qualifier -> new Component(type, qualifier)).toList(),
+                context -> instance, new Instance(instance), null);
     }
 
 
@@ -46,36 +83,226 @@ public class ContextConfig {
 
     public <T, Implementation extends T>
     void bind(Class<T> type, Class<Implementation> implementation, Annotation... annotations) {
-        // 将 annotation 分成 3 个组： 带Scope的，带Qualifier的，其他异常情况的（Illegal）
+        bind(binding(type, implementation, annotations));
+    }
+
+    // 绑定由容器实现的工厂接口：工厂方法的参数依次对应实现类构造函数中标注了 @Assisted 的参数
+    public <F> void bindFactory(Class<F> factory, Class<?> implementation, Annotation... qualifiers) {
+        if (Arrays.stream(qualifiers).anyMatch(q -> !q.annotationType().isAnnotationPresent(Qualifier.class))) {
+            throw new IllegalComponentException();
+        }
+        AssistedFactoryProvider<F> provider = new AssistedFactoryProvider<>(factory, implementation);
+        put(components(factory, List.of(qualifiers)), provider, new Factory(factory, implementation), null);
+    }
+
+    // 按类名绑定：直到检查依赖或解析组件时才加载实现类（不初始化），没用到的绑定不会加载。
+    // Qualifier 只能由 annotations 指定，Scope、Lazy 与 Concurrent 也可以标注在实现类上
+    public <T> void bind(Class<T> type, String implementation, ClassLoader loader, Annotation... annotations) {
         Map<Class<?>, List<Annotation>> annotationGroups = Arrays.stream(annotations)
                 .collect(Collectors.groupingBy(this::typeOf, Collectors.toList()));
-
         if (annotationGroups.containsKey(Illegal.class)) {
             throw new IllegalComponentException();
         }
+        Deferred deferred = new Deferred(() -> binding(type, load(type, implementation, loader), annotations));
+        Named named = new Named(implementation, new Instance(loader), List.of(annotations));
+        put(components(type, annotationGroups.getOrDefault(Qualifier.class, List.of())), deferred, named, null);
+    }
+
+    private static Class<?> load(Class<?> type, String implementation, ClassLoader loader) {
+        try {
+            Class<?> loaded = Class.forName(implementation, false, loader);
+            if (!type.isAssignableFrom(loaded)) {
+                throw new IllegalComponentException();
+            }
+            return loaded;
+        } catch (ClassNotFoundException e) {
+            throw new IllegalComponentException();
+        }
+    }
+
+    private static class Deferred implements ComponentProvider<Object> {
+        private final Supplier<Binding> loading;
+        private volatile Binding binding;
+
+        Deferred(Supplier<Binding> loading) {
+            this.loading = loading;
+        }
+
+        Binding binding() {
+            Binding loaded = binding;
+            if (loaded == null) {
+                synchronized (this) {
+                    loaded = binding;
+                    if (loaded == null) {
+                        binding = loaded = loading.get();
+                    }
+                }
+            }
+            return loaded;
+        }
+
+        @Override
+        public Object get(Context context) {
+            return binding().provider().get(context);
+        }
 
-        bind(type, annotationGroups.getOrDefault(Qualifier.class, List.of()),
-                createScopeProvider(implementation, annotationGroups.getOrDefault(Scope.class, List.of())));
+        @Override
+        public List<ComponentRef<?>> getDependencies() {
+            return binding().provider().getDependencies();
+        }
+
+        @Override
+        public void destroy(Object instance) {
+            ((ComponentProvider<Object>) binding().provider()).destroy(instance);
+        }
     }
 
-    private <T, Implementation extends T> ComponentProvider<?>
-    createScopeProvider(Class<Implementation> implementation, List<Annotation> scopes) {
+    // 并行完成各实现类的反射分析，再按 bindings 的迭代顺序依次注册：
+    // 注册结果与抛出的异常，都与按同样顺序逐个调用 bind(type, implementation) 一致
+    public void bindAll(Map<Class<?>, Class<?>> bindings) {
+        List<Analysis> analyses = bindings.entrySet().parallelStream()
+                .map(binding -> analyze(binding.getKey(), binding.getValue()))
+                .toList();
+        for (Analysis analysis : analyses) {
+            if (analysis.failure() != null) {
+                throw analysis.failure();
+            }
+            bind(analysis.binding());
+        }
+    }
+
+    private Analysis analyze(Class<?> type, Class<?> implementation) {
+        try {
+            if (!type.isAssignableFrom(implementation)) {
+                throw new IllegalComponentException();
+            }
+            return new Analysis(binding(type, implementation, implementation.getAnnotations()), null);
+        } catch (RuntimeException e) {
+            return new Analysis(null, e);
+        }
+    }
+
+    private Binding binding(Class<?> type, Class<?> implementation, Annotation... annotations) {
+        // 将 annotation 分成 3 个组： 带Scope的，带Qualifier的，其他异常情况的（Illegal）
+        Map<Class<?>, List<Annotation>> annotationGroups = Arrays.stream(annotations)
+                .collect(Collectors.groupingBy(this::typeOf, Collectors.toList()));
+
+        if (annotationGroups.containsKey(Illegal.class)) {
+            throw new IllegalComponentException();
+        }
+
+        List<Annotation> scopes = annotationGroups.getOrDefault(Scope.class, List.of());
         if (scopes.size() > 1) {
             throw new IllegalComponentException();
         }
-        ComponentProvider<Implementation> injectionProvider = new InjectionProvider<>(implementation);
+        // 绑定时指定的 @Concurrent 只对这次绑定生效，不使用按实现类缓存的分析结果
+        boolean concurrentInjection = annotationGroups.containsKey(Concurrent.class)
+                && !implementation.isAnnotationPresent(Concurrent.class);
+        InjectionProvider<?> injection = concurrentInjection ? new InjectionProvider<>(implementation, true)
+                : cache == null ? new InjectionProvider<>(implementation) : cache.injection(implementation);
+        return new Binding(type, annotationGroups.getOrDefault(Qualifier.class, List.of()),
+                createScopeProvider(type, implementation, injection, scopes, annotationGroups.containsKey(Lazy.class)),
+                injection, new Bound(implementation, List.of(annotations)));
+    }
+
+    private record Binding(Class<?> type, List<Annotation> qualifiers, ComponentProvider<?> provider,
+                           InjectionProvider<?> injection, Bound bound) {
+    }
+
+    // 绑定的描述：实现类、按类名绑定、工厂，与按同一性比较的实例
+    private record Bound(Class<?> implementation, List<Annotation> annotations) {
+    }
+
+    private record Named(String implementation, Instance loader, List<Annotation> annotations) {
+    }
+
+    private record Factory(Class<?> factory, Class<?> implementation) {
+    }
+
+    // 按同一性比较绑定的实例。只弱引用实例：ContextCache 中保留的配置指纹不会让实例一直存活，
+    // 实例被回收后这个指纹不会再被命中，由缓存按最久未使用淘汰
+    private static final class Instance {
+        private final WeakReference<Object> instance;
+        private final int hash;
+
+        Instance(Object instance) {
+            this.instance = new WeakReference<>(instance);
+            this.hash = System.identityHashCode(instance);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            Object current = instance.get();
+            return o instanceof Instance other && current != null && other.instance.get() == current;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private record Analysis(Binding binding, RuntimeException failure) {
+    }
+
+    private ComponentProvider<?> createScopeProvider(Class<?> type, Class<?> implementation,
+                                                     ComponentProvider<?> injectionProvider,
+                                                     List<Annotation> scopes, boolean lazy) {
+        if (lazy || implementation.isAnnotationPresent(Lazy.class)) {
+            // 只有接口才能生成代理
+            if (!type.isInterface()) {
+                throw new IllegalComponentException();
+            }
+            injectionProvider = new LazyProvider<>(type, injectionProvider);
+        }
+        ComponentProvider<?> provider = injectionProvider;
         Optional<Annotation> scope = scopes.stream().findFirst()
                 .or(() -> scopeFrom(implementation));
-        return scope.<ComponentProvider<?>>map(s -> getScopeProvider(s, injectionProvider))
-                .orElse(injectionProvider);
+        return scope.<ComponentProvider<?>>map(s -> getScopeProvider(s, provider))
+                .orElse(provider);
+    }
+
+    private void bind(Binding binding) {
+        put(components(binding.type(), binding.qualifiers()), binding.provider(), binding.bound(), binding.injection());
     }
 
-    private <T> void bind(Class<T> type, List<Annotation> qualifiers, ComponentProvider<?> provider) {
-        if (qualifiers.isEmpty()) {
-            components.put(new Component(type, null), provider);
+    private static List<Component> components(Class<?> type, List<Annotation> qualifiers) {
+        return qualifiers.isEmpty()
+                ? List.of(new Component(type, null))
+                : qualifiers.stream().map(qualifier -> new Component(type, qualifier)).toList();
+    }
+
+    private synchronized void put(List<Component> keys, ComponentProvider<?> provider, Object binding,
+                                  InjectionProvider<?> injection) {
+        if (concurrent) {
+            Optional<Component> duplicated = keys.stream().filter(components::containsKey).findFirst();
+            if (duplicated.isPresent()) {
+                throw ContextConfigException.duplicated(duplicated.get());
+            }
         }
-        for (Annotation qualifier : qualifiers) {
-            components.put(new Component(type, qualifier), provider);
+        for (Component component : keys) {
+            put(component, provider, binding);
+            if (injection != null) {
+                injections.put(component, injection);
+            }
+        }
+    }
+
+    private void put(Component component, ComponentProvider<?> provider, Object binding) {
+        components.put(component, provider);
+        bindings.put(component, binding);
+        injections.remove(component);
+        context = null;
+
+        Deque<Component> changed = new ArrayDeque<>(List.of(component));
+        while (!changed.isEmpty()) {
+            Component current = changed.pop();
+            if (validated.remove(current) || current == component) {
+                changed.addAll(dependents.getOrDefault(current, Set.of()));
+            }
         }
     }
 
@@ -86,6 +313,9 @@ public class ContextConfig {
 
     private Class<?> typeOf(Annotation annotation) {
         Class<? extends Annotation> type = annotation.annotationType();
+        if (type == Lazy.class || type == Concurrent.class) {
+            return type;
+        }
         return Stream.of(Qualifier.class, Scope.class)
                 .filter(type::isAnnotationPresent).findFirst()
                 .orElse(Illegal.class);
@@ -103,40 +333,94 @@ public class ContextConfig {
                 .create(provider);
     }
 
+    // 包括按类名绑定的组件，它们的实现类会在这里被加载
+    synchronized Collection<InjectionProvider<?>> injections() {
+        List<InjectionProvider<?>> all = new ArrayList<>(injections.values());
+        components.values().stream().filter(provider -> provider instanceof Deferred).distinct()
+                .map(provider -> ((Deferred) provider).binding().injection())
+                .forEach(all::add);
+        return all;
+    }
+
+    synchronized Collection<AssistedFactoryProvider<?>> factories() {
+        return components.values().stream().filter(provider -> provider instanceof AssistedFactoryProvider<?>)
+                .distinct().<AssistedFactoryProvider<?>>map(provider -> (AssistedFactoryProvider<?>) provider).toList();
+    }
+
     public <ScopeType extends Annotation> void scope(Class<ScopeType> scope,
                                                      ScopeProvider provider) {
         scopes.put(scope, provider);
     }
 
-    public Context getContext() {
+    // 可以在多个线程中同时调用，检查依赖的结果与创建的 Context 会被复用
+    public synchronized Context getContext() {
         // 检查是否存在依赖
         // 检查是否发生了循环依赖
-        components.keySet().forEach(component -> checkDependencies(component, new Stack<>()));
+        // 关闭后的 Context 不能再使用，重新创建
+        if (context == null || ((ComponentContext) context).isClosed()) {
+            ContextCache.Fingerprint fingerprint = cache == null ? null
+                    : ContextCache.Fingerprint.of(bindings, scopes);
+            Map<Component, Set<Component>> checked = cache == null ? null : cache.validated(fingerprint);
+            if (checked != null) {
+                // 相同的配置已经检查过，直接使用检查时记录下的反向依赖
+                checked.forEach((component, dependent) ->
+                        dependents.computeIfAbsent(component, c -> new HashSet<>()).addAll(dependent));
+                validated.addAll(components.keySet());
+            } else {
+                components.keySet().forEach(component -> checkDependencies(component, new Stack<>()));
+                if (cache != null) {
+                    cache.validated(fingerprint, dependents);
+                }
+            }
+            context = context(components);
+        }
+        return context;
+    }
 
-        return new Context() {
+    // 只检查、保留从 roots 出发可以到达的组件，其余组件不会出现在 Context 中
+    public synchronized Context getContext(ComponentRef<?>... roots) {
+        Map<Component, ComponentProvider<?>> reachable = reachable(roots);
+        reachable.keySet().forEach(component -> checkDependencies(component, new Stack<>()));
 
-            @Override
-            public <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> ref) {
-                if (ref.getQualifier() != null) {
-                    return Optional.ofNullable(components.get(new Component(ref.getComponent(), ref.getQualifier())))
-                            .map(provider -> (ComponentType) provider.get(this));
-                }
+        return context(reachable);
+    }
 
-                if (ref.isContainer()) {
-                    if (ref.container() != Provider.class) {
-                        return Optional.empty();
-                    }
-                    return (Optional<ComponentType>) Optional.ofNullable(components.get(new Component(ref.getComponent(), ref.getQualifier())))
-                            .map(provider -> (Provider<Object>) () -> provider.get(this));
-                }
-                return Optional.ofNullable(components.get(new Component(ref.getComponent(), ref.getQualifier())))
-                        .map(provider -> (ComponentType) provider.get(this));
+    private Map<Component, ComponentProvider<?>> reachable(ComponentRef<?>... roots) {
+        Map<Component, ComponentProvider<?>> reachable = new HashMap<>();
+        Deque<Component> visiting = new ArrayDeque<>();
+        for (ComponentRef<?> root : roots) {
+            if (!components.containsKey(root.component())) {
+                throw new DependencyNotFoundException(root.component());
             }
-        };
+            visiting.push(root.component());
+        }
+        while (!visiting.isEmpty()) {
+            Component component = visiting.pop();
+            if (reachable.containsKey(component) || !components.containsKey(component)) {
+                continue;
+            }
+            ComponentProvider<?> provider = components.get(component);
+            reachable.put(component, provider);
+            provider.getDependencies().forEach(dependency -> visiting.push(dependency.component()));
+        }
+        return reachable;
+    }
+
+    // 按类名绑定的组件在检查依赖时已经加载，Context 中直接使用加载后的 provider
+    private Context context(Map<Component, ComponentProvider<?>> components) {
+        Map<Component, ComponentProvider<?>> loaded = new HashMap<>(components);
+        loaded.replaceAll((component, provider) ->
+                provider instanceof Deferred deferred ? deferred.binding().provider() : provider);
+        return new ComponentContext(loaded,
+                (type, implementation) -> binding(type, implementation, implementation.getAnnotations()).provider());
     }
 
     public void checkDependencies(Component component, Stack<Component> visiting) {
+        if (validated.contains(component)) {
+            return;
+        }
         for (ComponentRef<?> dependency : components.get(component).getDependencies()) {
+            dependents.computeIfAbsent(dependency.component(), d -> new HashSet<>()).add(component);
             if (!components.containsKey(new Component(dependency.getComponent(), dependency.getQualifier()))) {
                 throw new DependencyNotFoundException(component, dependency.component());
             }
@@ -152,6 +436,7 @@ public class ContextConfig {
                 visiting.pop();
             }
         }
+        validated.add(component);
     }
 
 }
@@ -0,0 +1,152 @@
+package kuan.tdd.di;
+
+import kuan.tdd.di.exception.IllegalComponentException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 为接口生成的隐藏类：每个方法（以及 toString、hashCode、equals）都直接调用 Supplier 给出的对象上的同名方法，
+ * 调用时没有反射
+ *
+ * @author qinxuekuan
+ * @date 2022/7/19
+ */
+final class DelegatingClass {
+
+    private static final String SUPPLIER = "java/util/function/Supplier";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String TARGET = "target";
+    private static final String TARGET_DESCRIPTOR = "L" + SUPPLIER + ";";
+
+    // 每个接口只生成一次；缓存的只有隐藏类本身，不会引用任何 Context
+    private static final ClassValue<DelegatingClass> CLASSES = new ClassValue<>() {
+        @Override
+        protected DelegatingClass computeValue(Class<?> type) {
+            return define(type);
+        }
+    };
+
+    // 生成过的隐藏类，统计保留大小时据此识别 @Lazy 注入的对象
+    private static final Set<Class<?>> GENERATED = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final MethodHandle constructor;
+    private final MethodHandle target;
+
+    private DelegatingClass(MethodHandle constructor, MethodHandle target) {
+        this.constructor = constructor.asType(MethodType.methodType(Object.class, Supplier.class));
+        this.target = target.asType(MethodType.methodType(Supplier.class, Object.class));
+    }
+
+    static DelegatingClass of(Class<?> type) {
+        return CLASSES.get(type);
+    }
+
+    static boolean isGenerated(Class<?> type) {
+        return type.isHidden() && GENERATED.contains(type);
+    }
+
+    Object newInstance(Supplier<?> target) {
+        try {
+            return (Object) constructor.invokeExact(target);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    Supplier<?> target(Object instance) {
+        try {
+            return (Supplier<?>) target.invokeExact(instance);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // public 接口定义在当前包中，其余接口定义在接口所在的包中，才能访问到它
+    private static DelegatingClass define(Class<?> type) {
+        if (!type.isInterface()) {
+            throw new IllegalComponentException();
+        }
+        try {
+            MethodHandles.Lookup lookup = Modifier.isPublic(type.getModifiers())
+                    ? MethodHandles.lookup()
+                    : MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            String packageName = lookup.lookupClass().getPackageName();
+            String name = (packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/")
+                    + type.getSimpleName() + "$$Lazy";
+            MethodHandles.Lookup hidden = lookup.defineHiddenClass(generate(name, type), true);
+            GENERATED.add(hidden.lookupClass());
+            return new DelegatingClass(
+                    hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class, Supplier.class)),
+                    hidden.findGetter(hidden.lookupClass(), TARGET, Supplier.class));
+        } catch (IllegalAccessException | NoSuchMethodException | NoSuchFieldException e) {
+            throw new IllegalComponentException();
+        }
+    }
+
+    private static byte[] generate(String name, Class<?> type) {
+        ClassFile file = new ClassFile(name, OBJECT, ClassFile.internal(type));
+        int interfaceClass = file.type(ClassFile.internal(type));
+        int field = file.member(ClassFile.FIELD, name, TARGET, TARGET_DESCRIPTOR);
+        int get = file.member(ClassFile.INTERFACE_METHOD, SUPPLIER, "get", "()Ljava/lang/Object;");
+        file.field(Modifier.PRIVATE | Modifier.FINAL, TARGET, TARGET_DESCRIPTOR);
+
+        file.method(Modifier.PUBLIC, "<init>", "(" + TARGET_DESCRIPTOR + ")V", 2, 2, new ClassFile.Code()
+                .op(0x2a).indexed(0xb7, file.member(ClassFile.METHOD, OBJECT, "<init>", "()V"))  // aload_0, invokespecial
+                .op(0x2a, 0x2b).indexed(0xb5, field)  // aload_0, aload_1, putfield target
+                .op(0xb1));
+
+        for (Method method : delegated(type).values()) {
+            boolean virtual = method.getDeclaringClass() == Object.class;
+            String descriptor = MethodType.methodType(method.getReturnType(), method.getParameterTypes())
+                    .toMethodDescriptorString();
+            ClassFile.Code code = new ClassFile.Code()
+                    .op(0x2a).indexed(0xb4, field)  // aload_0, getfield target
+                    .indexed(0xb9, get).op(1, 0);  // invokeinterface Supplier.get
+            if (!virtual) {
+                code.indexed(0xc0, interfaceClass);  // checkcast 接口
+            }
+            int slot = 1;
+            for (Class<?> parameter : method.getParameterTypes()) {
+                code.load(parameter, slot);
+                slot += ClassFile.size(parameter);
+            }
+            if (virtual) {
+                code.indexed(0xb6, file.member(ClassFile.METHOD, OBJECT, method.getName(), descriptor));  // invokevirtual
+            } else {
+                code.indexed(0xb9, file.member(ClassFile.INTERFACE_METHOD, ClassFile.internal(type), method.getName(), descriptor))
+                        .op(slot, 0);  // invokeinterface
+            }
+            file.method(Modifier.PUBLIC, method.getName(), descriptor, Math.max(slot, 2), slot,
+                    code.returns(method.getReturnType()));
+        }
+        return file.toByteArray();
+    }
+
+    // 接口中所有的实例方法，加上 Object 的 toString、hashCode、equals；同样签名的方法只生成一次
+    private static Map<String, Method> delegated(Class<?> type) {
+        Map<String, Method> methods = new LinkedHashMap<>();
+        try {
+            for (Method method : List.of(Object.class.getMethod("toString"), Object.class.getMethod("hashCode"),
+                    Object.class.getMethod("equals", Object.class))) {
+                methods.put(signature(method), method);
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        Arrays.stream(type.getMethods()).filter(method -> !Modifier.isStatic(method.getModifiers()))
+                .forEach(method -> methods.putIfAbsent(signature(method), method));
+        return methods;
+    }
+
+    private static String signature(Method method) {
+        return method.getName() + MethodType.methodType(method.getReturnType(), method.getParameterTypes())
+                .toMethodDescriptorString();
+    }
+}
@@ -0,0 +1,114 @@
+package kuan.tdd.di;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * 实例创建超过 ttl 后重新创建。异步刷新时，过期后的访问仍然返回旧实例，由后台线程创建新实例后替换；
+ * 被替换的旧实例可能仍在使用中，不会被销毁
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+class ExpiringProvider<T> implements ScopedProvider<T> {
+
+    private final ComponentProvider<T> provider;
+    private final long ttl;
+    private final boolean async;
+    private final LongSupplier clock;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Entry<T> entry;
+
+    public ExpiringProvider(ComponentProvider<T> provider, Duration ttl, boolean async, LongSupplier clock) {
+        this.provider = provider;
+        this.ttl = ttl.toNanos();
+        this.async = async;
+        this.clock = clock;
+    }
+
+    static ScopeProvider scope(Duration ttl, boolean async) {
+        return scope(ttl, async, System::nanoTime);
+    }
+
+    static ScopeProvider scope(Duration ttl, boolean async, LongSupplier clock) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        return provider -> new ExpiringProvider<>(provider, ttl, async, clock);
+    }
+
+    @Override
+    public T get(Context context) {
+        Entry<T> current = entry;
+        if (current != null && !current.expired(clock.getAsLong(), ttl)) {
+            return current.instance();
+        }
+        if (current != null && async) {
+            refresh(context);
+            return current.instance();
+        }
+        synchronized (this) {
+            current = entry;
+            if (current == null || current.expired(clock.getAsLong(), ttl)) {
+                entry = current = create(context);
+            }
+            return current.instance();
+        }
+    }
+
+    // 同时只有一个刷新任务；刷新失败时保留旧实例，下次访问再重试。
+    // 读到过期实例后，其他线程可能已经刷新完成，取得刷新权后要再检查一次
+    private void refresh(Context context) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        if (!entry.expired(clock.getAsLong(), ttl)) {
+            refreshing.set(false);
+            return;
+        }
+        Context untraced = TracingContext.untraced(context);
+        Workers.executor().execute(() -> {
+            try {
+                Entry<T> refreshed = create(untraced);
+                synchronized (this) {
+                    entry = refreshed;
+                }
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    private Entry<T> create(Context context) {
+        return new Entry<>(provider.get(context), clock.getAsLong());
+    }
+
+    @Override
+    public List<ComponentRef<?>> getDependencies() {
+        return provider.getDependencies();
+    }
+
+    @Override
+    public List<T> instances() {
+        Entry<T> current = entry;
+        return current == null ? List.of() : List.of(current.instance());
+    }
+
+    @Override
+    public ScopedProvider<T> renew() {
+        return new ExpiringProvider<>(provider, Duration.ofNanos(ttl), async, clock);
+    }
+
+    @Override
+    public void destroy(T instance) {
+        provider.destroy(instance);
+    }
+
+    private record Entry<T>(T instance, long created) {
+        boolean expired(long now, long ttl) {
+            return now - created >= ttl;
+        }
+    }
+}
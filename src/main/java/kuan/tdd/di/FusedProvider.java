@@ -0,0 +1,125 @@
+package kuan.tdd.di;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 把原型组件及其原型依赖的整棵子树融合成一个 MethodHandle：依次直接调用构造函数，
+ * Singleton 依赖作为常量，其他依赖仍通过各自的 provider 获取
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+class FusedProvider<T> implements ComponentProvider<T> {
+
+    private static final MethodHandle GET;
+    private static final MethodHandle FAILED;
+
+    static {
+        try {
+            GET = MethodHandles.lookup().findVirtual(ComponentProvider.class, "get",
+                    MethodType.methodType(Object.class, Context.class));
+            FAILED = MethodHandles.lookup().findStatic(FusedProvider.class, "failed",
+                    MethodType.methodType(Object.class, Throwable.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ComponentProvider<T> original;
+    // () -> Object
+    private final MethodHandle factory;
+
+    private FusedProvider(ComponentProvider<T> original, MethodHandle factory) {
+        this.original = original;
+        this.factory = factory;
+    }
+
+    // 只有通过构造函数注入的原型组件可以融合，否则返回 null
+    static <T> FusedProvider<T> fuse(ComponentProvider<T> provider,
+                                     Function<ComponentRef<?>, ComponentProvider<?>> providers, Context context) {
+        if (!(provider instanceof InjectionProvider<T> injection)) {
+            return null;
+        }
+        MethodHandle factory = instantiate(injection, providers, context);
+        return factory == null ? null : new FusedProvider<>(provider, factory.asType(MethodType.methodType(Object.class)));
+    }
+
+    ComponentProvider<T> original() {
+        return original;
+    }
+
+    @Override
+    public T get(Context context) {
+        try {
+            return (T) (Object) factory.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<ComponentRef<?>> getDependencies() {
+        return original.getDependencies();
+    }
+
+    @Override
+    public void destroy(T instance) {
+        original.destroy(instance);
+    }
+
+    private static MethodHandle instantiate(InjectionProvider<?> injection,
+                                            Function<ComponentRef<?>, ComponentProvider<?>> providers, Context context) {
+        Constructor<?> constructor = injection.fusibleConstructor();
+        if (constructor == null) {
+            return null;
+        }
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.privateLookupIn(constructor.getDeclaringClass(), MethodHandles.lookup())
+                    .unreflectConstructor(constructor);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+        // 构造函数抛出的异常与 InjectionProvider 中一样包装，融合前后调用方看到的异常相同；
+        // 只包住构造函数本身，依赖的 provider 抛出的异常原样传出
+        MethodHandle failed = FAILED.asType(MethodType.methodType(handle.type().returnType(), Throwable.class));
+        handle = MethodHandles.catchException(handle, Throwable.class,
+                MethodHandles.dropArguments(failed, 1, handle.type().parameterList()));
+        for (ComponentRef<?> dependency : injection.constructorDependencies()) {
+            MethodHandle argument = dependency(dependency, providers, context);
+            handle = MethodHandles.collectArguments(handle, 0,
+                    argument.asType(MethodType.methodType(handle.type().parameterType(0))));
+        }
+        return handle;
+    }
+
+    private static Object failed(Throwable cause) {
+        throw new RuntimeException(new InvocationTargetException(cause));
+    }
+
+    private static MethodHandle dependency(ComponentRef<?> ref, Function<ComponentRef<?>, ComponentProvider<?>> providers,
+                                           Context context) {
+        ComponentProvider<?> provider = providers.apply(ref);
+        if (ref.isContainer() || provider instanceof SingletonProvider) {
+            return MethodHandles.constant(Object.class, provider.get(context));
+        }
+        if (provider instanceof FusedProvider<?> fused) {
+            return fused.factory;
+        }
+        if (provider instanceof InjectionProvider<?> injection) {
+            MethodHandle inlined = instantiate(injection, providers, context);
+            if (inlined != null) {
+                return inlined;
+            }
+        }
+        return MethodHandles.insertArguments(GET, 0, provider, context);
+    }
+}
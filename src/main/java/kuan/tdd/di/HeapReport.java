@@ -0,0 +1,21 @@
+package kuan.tdd.di;
+
+import java.util.List;
+
+/**
+ * 作用域中实例的保留大小：只被一个组件的实例引用到的对象算在这个组件上，
+ * 被多个组件的实例引用到的对象算在 shared 中，其他组件在作用域中的实例不计入引用它的组件
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+public record HeapReport(List<Entry> entries, long shared) {
+
+    // 按保留大小从大到小排列
+    public record Entry(Component component, Class<?> scope, int instances, long objects, long retained) {
+    }
+
+    public long total() {
+        return shared + entries.stream().mapToLong(Entry::retained).sum();
+    }
+}
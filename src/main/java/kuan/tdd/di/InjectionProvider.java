@@ -1,5 +1,7 @@
 package kuan.tdd.di;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 import jakarta.inject.Qualifier;
 import kuan.tdd.di.exception.IllegalComponentException;
@@ -8,7 +10,12 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static java.util.Arrays.stream;
@@ -21,39 +28,64 @@ class InjectionProvider<T> implements ComponentProvider<T> {
 
     private final Injectable<Constructor<T>> injectConstructor;
 
-    private final List<Injectable<Method>> injectMethods;
+    private final Members members;
 
-    private final List<Injectable<Field>> injectFields;
+    private final List<Method> postConstructs;
+
+    private final List<Method> preDestroys;
 
 
     public InjectionProvider(Class<T> component) {
+        this(component, false);
+    }
+
+    // concurrent 为 true 时，与在组件上标注 @Concurrent 相同
+    InjectionProvider(Class<T> component, boolean concurrent) {
         if (Modifier.isAbstract(component.getModifiers())) {
             throw new IllegalComponentException();
         }
 
-        this.injectConstructor = getInjectConstructor(component);
-        this.injectMethods = getInjectMethods(component);
-        this.injectFields = getInjectFields(component);
+        boolean annotated = component.isAnnotationPresent(Concurrent.class);
+        this.injectConstructor = getInjectConstructor(component, concurrent || annotated);
+        this.members = concurrent && !annotated ? Members.of(component, true) : members(component);
+        this.postConstructs = getLifecycleMethods(component, PostConstruct.class);
+        this.preDestroys = getLifecycleMethods(component, PreDestroy.class);
+    }
 
-        if (injectFields.stream().map(Injectable::element).anyMatch(f -> Modifier.isFinal(f.getModifiers()))) {
-            throw new IllegalComponentException();
-        }
-        if (injectMethods.stream().map(Injectable::element).anyMatch(m -> m.getTypeParameters().length != 0)) {
-            throw new IllegalComponentException();
+    // 每个类的字段与方法注入计划只扫描一次，也用于注入由外部创建的实例
+    private static final ClassValue<Members> MEMBERS = new ClassValue<>() {
+        @Override
+        protected Members computeValue(Class<?> type) {
+            return Members.of(type);
         }
+    };
+
+    static Members members(Class<?> type) {
+        return MEMBERS.get(type);
     }
 
 
     @Override
     public T get(Context context) {
+        return get(context, context instanceof TracingContext tracing ? tracing::injected : null);
+    }
+
+    // listener 不为 null 时（被采样的解析），记录构造函数、字段与方法注入各自的耗时
+    T get(Context context, Consumer<Trace.Injection> listener) {
         try {
+            long start = listener == null ? 0 : System.nanoTime();
             T instance = injectConstructor.element().newInstance(injectConstructor.toDependency(context));
-            for (Injectable<Field> field : injectFields) {
-                field.element().setAccessible(true);
-                field.element().set(instance, field.toDependency(context)[0]);
+            long constructed = listener == null ? 0 : System.nanoTime();
+            members.injectFields(instance, context);
+            long fieldsInjected = listener == null ? 0 : System.nanoTime();
+            members.injectMethods(instance, context);
+            long methodsInjected = listener == null ? 0 : System.nanoTime();
+            for (Method postConstruct : postConstructs) {
+                postConstruct.invoke(instance);
             }
-            for (Injectable<Method> method : injectMethods) {
-                method.element().invoke(instance, method.toDependency(context));
+            if (listener != null) {
+                listener.accept(new Trace.Injection(constructed - start, fieldsInjected - constructed,
+                        methodsInjected - fieldsInjected));
             }
             return instance;
         } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
@@ -61,27 +93,158 @@ class InjectionProvider<T> implements ComponentProvider<T> {
         }
     }
 
+    // 批量创建：shared 的依赖（如作用域中的组件）在整批实例中只解析一次，其余依赖每个实例单独解析
+    void create(Context context, Object[] instances, Predicate<ComponentRef<?>> shared) {
+        Object[] constructorArguments = injectConstructor.resolve(context, shared);
+        List<Injectable<Field>> fields = members.fields();
+        List<Injectable<Method>> methods = members.methods();
+        Object[][] fieldValues = fields.stream().map(f -> f.resolve(context, shared)).toArray(Object[][]::new);
+        Object[][] methodArguments = methods.stream().map(m -> m.resolve(context, shared)).toArray(Object[][]::new);
+        try {
+            for (int n = 0; n < instances.length; n++) {
+                T instance = injectConstructor.element().newInstance(injectConstructor.toDependency(context, constructorArguments));
+                for (int i = 0; i < fields.size(); i++) {
+                    fields.get(i).element().set(instance, fields.get(i).toDependency(context, fieldValues[i])[0]);
+                }
+                for (int i = 0; i < methods.size(); i++) {
+                    methods.get(i).element().invoke(instance, methods.get(i).toDependency(context, methodArguments[i]));
+                }
+                for (Method postConstruct : postConstructs) {
+                    postConstruct.invoke(instance);
+                }
+                instances[n] = instance;
+            }
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void destroy(T instance) {
+        try {
+            for (Method preDestroy : preDestroys) {
+                preDestroy.invoke(instance);
+            }
+            if (instance instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    // 只通过构造函数注入、没有 PostConstruct 的组件，构造过程可以融合进依赖它的组件，否则返回 null
+    Constructor<T> fusibleConstructor() {
+        boolean fusible = members.fields().isEmpty() && members.methods().isEmpty() && postConstructs.isEmpty()
+                && !(injectConstructor.concurrent() && injectConstructor.required().length > 1);
+        return fusible ? injectConstructor.element() : null;
+    }
+
+    ComponentRef<?>[] constructorDependencies() {
+        return injectConstructor.required();
+    }
+
+    // 注入时会通过反射使用的构造函数、字段与方法
+    List<Member> getMembers() {
+        List<Member> members = new ArrayList<>();
+        members.add(injectConstructor.element());
+        this.members.fields().stream().map(Injectable::element).forEach(members::add);
+        this.members.methods().stream().map(Injectable::element).forEach(members::add);
+        members.addAll(postConstructs);
+        members.addAll(preDestroys);
+        return members;
+    }
 
     @Override
     public List<ComponentRef<?>> getDependencies() {
-        return Stream.concat(Stream.concat(Stream.of(injectConstructor), injectFields.stream()),
-                        injectMethods.stream())
+        return Stream.concat(Stream.concat(Stream.of(injectConstructor), members.fields().stream()),
+                        members.methods().stream())
                 .flatMap(injectable -> stream(injectable.required())).toList();
     }
 
-    static record Injectable<Element extends AccessibleObject>(Element element, ComponentRef<?>[] required) {
+    record Members(List<Injectable<Field>> fields, List<Injectable<Method>> methods) {
+
+        static Members of(Class<?> component) {
+            return of(component, component.isAnnotationPresent(Concurrent.class));
+        }
+
+        static Members of(Class<?> component, boolean concurrent) {
+            List<Injectable<Field>> fields = getInjectFields(component);
+            List<Injectable<Method>> methods = getInjectMethods(component, concurrent);
+            if (fields.stream().map(Injectable::element).anyMatch(f -> Modifier.isFinal(f.getModifiers()))) {
+                throw new IllegalComponentException();
+            }
+            if (methods.stream().map(Injectable::element).anyMatch(m -> m.getTypeParameters().length != 0)) {
+                throw new IllegalComponentException();
+            }
+            fields.forEach(field -> field.element().setAccessible(true));
+            return new Members(fields, methods);
+        }
+
+        void inject(Object instance, Context context) throws IllegalAccessException, InvocationTargetException {
+            injectFields(instance, context);
+            injectMethods(instance, context);
+        }
+
+        void injectFields(Object instance, Context context) throws IllegalAccessException {
+            for (Injectable<Field> field : fields) {
+                field.element().set(instance, context.require(field.required()[0]));
+            }
+        }
+
+        void injectMethods(Object instance, Context context) throws IllegalAccessException, InvocationTargetException {
+            for (Injectable<Method> method : methods) {
+                method.element().invoke(instance, method.toDependency(context));
+            }
+        }
+    }
+
+    static record Injectable<Element extends AccessibleObject>(Element element, ComponentRef<?>[] required,
+                                                               boolean concurrent) {
 
-        static <Element extends Executable> Injectable<Element> of(Element element) {
+        static <Element extends Executable> Injectable<Element> of(Element element, boolean concurrent) {
             ComponentRef<?>[] required = stream(element.getParameters()).map(Injectable::toComponentRef).toArray(ComponentRef<?>[]::new);
-            return new Injectable<>(element, required);
+            return new Injectable<>(element, required, concurrent || element.isAnnotationPresent(Concurrent.class));
         }
 
         static Injectable<Field> of(Field field) {
-            return new Injectable<>(field, new ComponentRef<?>[]{toComponentRef(field)});
+            return new Injectable<>(field, new ComponentRef<?>[]{toComponentRef(field)}, false);
         }
 
         Object[] toDependency(Context context) {
-            return stream(required).map(context::get).map(Optional::get).toArray();
+            return require(context, new Object[required.length], i -> true);
+        }
+
+        // 预先解析 shared 的依赖，其余位置留空
+        Object[] resolve(Context context, Predicate<ComponentRef<?>> shared) {
+            return require(context, new Object[required.length], i -> shared.test(required[i]));
+        }
+
+        Object[] toDependency(Context context, Object[] resolved) {
+            return require(context, resolved.clone(), i -> resolved[i] == null);
+        }
+
+        // 解析 pending 选中位置的依赖；concurrent 且不止一个时同时解析
+        private Object[] require(Context context, Object[] dependencies, IntPredicate pending) {
+            if (concurrent && required.length > 1) {
+                int[] indexes = IntStream.range(0, required.length).filter(pending).toArray();
+                if (indexes.length > 1) {
+                    Object[] resolved = Workers.invokeAll(stream(indexes)
+                            .mapToObj(i -> (Callable<?>) () -> context.require(required[i]))
+                            .toArray(Callable<?>[]::new));
+                    for (int i = 0; i < indexes.length; i++) {
+                        dependencies[indexes[i]] = resolved[i];
+                    }
+                    return dependencies;
+                }
+            }
+            for (int i = 0; i < required.length; i++) {
+                if (pending.test(i)) {
+                    dependencies[i] = context.require(required[i]);
+                }
+            }
+            return dependencies;
         }
 
         private static ComponentRef toComponentRef(Field field) {
@@ -107,13 +270,13 @@ class InjectionProvider<T> implements ComponentProvider<T> {
 
     }
 
-    private Injectable<Constructor<T>> getInjectConstructor(Class<T> component) {
+    private Injectable<Constructor<T>> getInjectConstructor(Class<T> component, boolean concurrent) {
         List<Constructor<?>> injectConstructors = injectable(component.getConstructors()).toList();
         if (injectConstructors.size() > 1) {
             throw new IllegalComponentException();
         }
         return Injectable.of((Constructor<T>) injectConstructors.stream().findFirst()
-                .orElseGet(() -> defaultConstructor(component)));
+                .orElseGet(() -> defaultConstructor(component)), concurrent);
     }
 
     private static List<Injectable<Field>> getInjectFields(Class<?> component) {
@@ -122,7 +285,7 @@ class InjectionProvider<T> implements ComponentProvider<T> {
         return injectFields.stream().map(Injectable::of).toList();
     }
 
-    private static List<Injectable<Method>> getInjectMethods(Class<?> component) {
+    private static List<Injectable<Method>> getInjectMethods(Class<?> component, boolean concurrent) {
         List<Method> injectMethods = traverse(component,
                 (methods, current) -> injectable(current.getDeclaredMethods())
                         .filter(m -> isOverrideByInjectMethod(methods, m))
@@ -130,7 +293,32 @@ class InjectionProvider<T> implements ComponentProvider<T> {
                         .toList()
         );
         Collections.reverse(injectMethods);
-        return injectMethods.stream().map(Injectable::of).toList();
+        return injectMethods.stream().map(method -> Injectable.of(method, concurrent)).toList();
+    }
+
+    // 父类中的生命周期方法先执行，被子类覆盖的方法不再执行
+    private static List<Method> getLifecycleMethods(Class<?> component, Class<? extends Annotation> lifecycle) {
+        List<Method> lifecycleMethods = traverse(component,
+                (methods, current) -> stream(current.getDeclaredMethods())
+                        .filter(m -> m.isAnnotationPresent(lifecycle))
+                        .filter(m -> isNotOverridden(component, current, m))
+                        .toList()
+        );
+        if (lifecycleMethods.stream().anyMatch(m -> m.getParameterCount() != 0)) {
+            throw new IllegalComponentException();
+        }
+        lifecycleMethods.forEach(m -> m.setAccessible(true));
+        Collections.reverse(lifecycleMethods);
+        return lifecycleMethods;
+    }
+
+    private static boolean isNotOverridden(Class<?> component, Class<?> declaring, Method m) {
+        for (Class<?> current = component; current != declaring; current = current.getSuperclass()) {
+            if (stream(current.getDeclaredMethods()).anyMatch(methodInSub -> isOverrideMethod(m, methodInSub))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private static <T extends AnnotatedElement> Stream<T> injectable(T[] members) {
@@ -0,0 +1,64 @@
+package kuan.tdd.di;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+class LayoutEstimator implements SizeEstimator {
+
+    static final LayoutEstimator INSTANCE = new LayoutEstimator();
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int ALIGNMENT = 8;
+
+    // 同一个类的实例大小相同，只计算一次
+    private final ClassValue<Long> instanceSizes = new ClassValue<>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            long size = OBJECT_HEADER;
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += sizeOf(field.getType());
+                    }
+                }
+            }
+            return align(size);
+        }
+    };
+
+    @Override
+    public long shallowSize(Object instance) {
+        Class<?> type = instance.getClass();
+        if (type.isArray()) {
+            return align(ARRAY_HEADER + (long) Array.getLength(instance) * sizeOf(type.getComponentType()));
+        }
+        return instanceSizes.get(type);
+    }
+
+    private static int sizeOf(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return REFERENCE;
+        }
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
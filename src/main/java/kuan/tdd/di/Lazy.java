@@ -0,0 +1,20 @@
+package kuan.tdd.di;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * 延迟构造的组件：注入的是接口的代理，第一次调用代理的方法时才构造真正的组件
+ *
+ * @author qinxuekuan
+ * @date 2022/7/19
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Lazy {
+}
@@ -0,0 +1,70 @@
+package kuan.tdd.di;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * @author qinxuekuan
+ * @date 2022/7/19
+ */
+class LazyProvider<T> implements ComponentProvider<T> {
+
+    private final Class<T> type;
+    private final ComponentProvider<?> provider;
+    private final DelegatingClass delegating;
+
+    public LazyProvider(Class<T> type, ComponentProvider<?> provider) {
+        this.type = type;
+        this.provider = provider;
+        this.delegating = DelegatingClass.of(type);
+    }
+
+    @Override
+    public T get(Context context) {
+        return type.cast(delegating.newInstance(new Target(provider, TracingContext.untraced(context))));
+    }
+
+    @Override
+    public List<ComponentRef<?>> getDependencies() {
+        return provider.getDependencies();
+    }
+
+    // 只有真正构造过的组件才需要销毁
+    @Override
+    public void destroy(T instance) {
+        Object target = ((Target) delegating.target(instance)).target;
+        if (target != null) {
+            destroy(provider, target);
+        }
+    }
+
+    private static <Type> void destroy(ComponentProvider<Type> provider, Object instance) {
+        provider.destroy((Type) instance);
+    }
+
+    // 生成的类每次调用都先通过 get 取得真正的组件
+    private static class Target implements Supplier<Object> {
+        private final ComponentProvider<?> provider;
+        private final Context context;
+        private volatile Object target;
+
+        Target(ComponentProvider<?> provider, Context context) {
+            this.provider = provider;
+            this.context = context;
+        }
+
+        @Override
+        public Object get() {
+            Object instance = target;
+            if (instance == null) {
+                synchronized (this) {
+                    instance = target;
+                    if (instance == null) {
+                        target = instance = provider.get(context);
+                    }
+                }
+            }
+            return instance;
+        }
+    }
+}
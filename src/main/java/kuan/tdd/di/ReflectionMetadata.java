@@ -0,0 +1,92 @@
+package kuan.tdd.di;
+
+import java.io.IOException;
+import java.lang.reflect.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.stream;
+
+/**
+ * 为 GraalVM native-image 生成 reflect-config.json：只包含容器注入时会用到的构造函数、字段和方法
+ * （包括 bindFactory 绑定的实现类构造函数与工厂方法），以及查找注入点时需要查询的类
+ *
+ * @author qinxuekuan
+ * @date 2022/7/21
+ */
+public final class ReflectionMetadata {
+
+    private ReflectionMetadata() {
+    }
+
+    // 参数：提供 ContextConfig 的 Supplier 实现类名，输出文件路径
+    public static void main(String[] args) throws ReflectiveOperationException, IOException {
+        Supplier<ContextConfig> module = (Supplier<ContextConfig>) Class.forName(args[0])
+                .getDeclaredConstructor().newInstance();
+        Path output = Path.of(args[1]);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        Files.writeString(output, reflectConfig(module.get()));
+    }
+
+    public static String reflectConfig(ContextConfig config) {
+        return entries(config).stream().map(Entry::toJson)
+                .collect(Collectors.joining(",\n", "[\n", "\n]\n"));
+    }
+
+    static List<Entry> entries(ContextConfig config) {
+        Map<Class<?>, Entry> entries = new TreeMap<>(Comparator.comparing(Class::getTypeName));
+        config.injections().forEach(injection -> add(entries, injection.getMembers()));
+        config.factories().forEach(factory -> add(entries, factory.getMembers()));
+        return List.copyOf(entries.values());
+    }
+
+    // 第一个成员是实现类的构造函数：查找注入点时会遍历它的整个继承链
+    private static void add(Map<Class<?>, Entry> entries, List<Member> members) {
+        for (Class<?> current = members.get(0).getDeclaringClass(); current != Object.class; current = current.getSuperclass()) {
+            entries.computeIfAbsent(current, Entry::new);
+        }
+        for (Member member : members) {
+            entries.computeIfAbsent(member.getDeclaringClass(), Entry::new).members.add(member);
+        }
+    }
+
+    static class Entry {
+        final Class<?> type;
+        final Set<Member> members = new TreeSet<>(Comparator.comparing(Entry::describe));
+
+        Entry(Class<?> type) {
+            this.type = type;
+        }
+
+        String toJson() {
+            String fields = members.stream().filter(m -> m instanceof Field).map(Entry::describe)
+                    .collect(Collectors.joining(", "));
+            String methods = members.stream().filter(m -> m instanceof Executable).map(Entry::describe)
+                    .collect(Collectors.joining(", "));
+            return "  {\n"
+                    + "    \"name\": \"" + type.getTypeName() + "\",\n"
+                    + "    \"queryAllPublicConstructors\": true,\n"
+                    + "    \"queryAllDeclaredConstructors\": true,\n"
+                    + "    \"queryAllDeclaredMethods\": true,\n"
+                    + "    \"fields\": [" + fields + "],\n"
+                    + "    \"methods\": [" + methods + "]\n"
+                    + "  }";
+        }
+
+        private static String describe(Member member) {
+            if (member instanceof Field) {
+                return "{\"name\": \"" + member.getName() + "\"}";
+            }
+            String name = member instanceof Constructor<?> ? "<init>" : member.getName();
+            String parameterTypes = stream(((Executable) member).getParameterTypes())
+                    .map(type -> "\"" + type.getTypeName() + "\"")
+                    .collect(Collectors.joining(", "));
+            return "{\"name\": \"" + name + "\", \"parameterTypes\": [" + parameterTypes + "]}";
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package kuan.tdd.di;
+
+/**
+ * 为一组固定的 ComponentRef 预先查找好 provider，可以反复使用
+ *
+ * @author qinxuekuan
+ * @date 2022/7/16
+ */
+public interface Resolver {
+
+    // 按 ref 的顺序返回组件，无法解析的 ref 对应位置为 null
+    Object[] resolve();
+
+    // 同 resolve()，结果写入调用方提供的数组，数组长度不能小于 ref 的个数
+    void resolve(Object[] instances);
+}
@@ -0,0 +1,157 @@
+package kuan.tdd.di;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * 从作用域中的实例出发遍历对象图，统计每个组件的保留大小
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+class RetainedHeap {
+
+    private static final Component SHARED = new Component(Object.class, null);
+
+    // 可以通过反射读取的实例字段；无法访问的类（如 JDK 内部类型）只统计自身大小
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()
+                            && field.trySetAccessible()) {
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(Field[]::new);
+        }
+    };
+
+    private final SizeEstimator estimator;
+    // 作用域中的实例属于哪个组件；同一个 provider 以多个 Qualifier 绑定时，实例只算在第一个组件上
+    private final Map<Object, Component> roots = new IdentityHashMap<>();
+    private final Map<Object, Component> owners = new IdentityHashMap<>();
+
+    RetainedHeap(SizeEstimator estimator) {
+        this.estimator = estimator;
+    }
+
+    HeapReport report(Map<Component, ComponentProvider<?>> components) {
+        Map<Component, ScopedProvider<?>> scoped = new LinkedHashMap<>();
+        components.forEach((component, provider) -> {
+            if (provider instanceof ScopedProvider<?> scopedProvider) {
+                scoped.put(component, scopedProvider);
+                scopedProvider.instances().forEach(instance -> roots.putIfAbsent(instance, component));
+            }
+        });
+
+        scoped.keySet().forEach(this::walk);
+
+        Map<Component, long[]> sizes = new HashMap<>();
+        long shared = 0;
+        for (Map.Entry<Object, Component> owner : owners.entrySet()) {
+            long size = estimator.shallowSize(owner.getKey());
+            if (owner.getValue() == SHARED) {
+                shared += size;
+            } else {
+                long[] total = sizes.computeIfAbsent(owner.getValue(), c -> new long[2]);
+                total[0]++;
+                total[1] += size;
+            }
+        }
+
+        Map<Component, Integer> instances = new HashMap<>();
+        roots.values().forEach(component -> instances.merge(component, 1, Integer::sum));
+        List<HeapReport.Entry> entries = new ArrayList<>();
+        scoped.forEach((component, provider) -> {
+            long[] total = sizes.getOrDefault(component, new long[2]);
+            entries.add(new HeapReport.Entry(component, provider.getClass(), instances.getOrDefault(component, 0),
+                    total[0], total[1]));
+        });
+        entries.sort(Comparator.comparingLong(HeapReport.Entry::retained).reversed());
+        return new HeapReport(entries, shared);
+    }
+
+    private void walk(Component component) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> visiting = new ArrayDeque<>();
+        roots.forEach((instance, owner) -> {
+            if (owner.equals(component)) {
+                visiting.push(instance);
+            }
+        });
+        while (!visiting.isEmpty()) {
+            Object current = visiting.pop();
+            if (!visited.add(current)) {
+                continue;
+            }
+            Component owner = owners.putIfAbsent(current, component);
+            if (owner != null && !owner.equals(component)) {
+                owners.put(current, SHARED);
+            }
+            references(current).forEach(reference -> {
+                Component root = roots.get(reference);
+                if (root == null ? !isContainer(reference) : root.equals(component)) {
+                    visiting.push(reference);
+                }
+            });
+        }
+    }
+
+    // 容器持有的对象：Context、ComponentProvider、容器创建的 Provider 与 @Lazy 注入的对象。
+    // 它们只是对其他组件的引用，从这里继续遍历会把整个容器算进引用它们的组件
+    private static boolean isContainer(Object instance) {
+        Class<?> type = instance.getClass();
+        return instance instanceof Context || instance instanceof ComponentProvider<?>
+                || type.isHidden() && (type.getNestHost() == ComponentContext.class || DelegatingClass.isGenerated(type));
+    }
+
+    private static List<Object> references(Object instance) {
+        Class<?> type = instance.getClass();
+        if (instance instanceof Class<?> || instance instanceof ClassLoader) {
+            return List.of();
+        }
+        List<Object> references = new ArrayList<>();
+        if (Proxy.isProxyClass(type)) {
+            references.add(Proxy.getInvocationHandler(instance));
+        } else if (type.isArray()) {
+            if (!type.getComponentType().isPrimitive()) {
+                for (Object element : (Object[]) instance) {
+                    if (element != null) {
+                        references.add(element);
+                    }
+                }
+            }
+        } else {
+            // JDK 中的集合不能通过反射读取内部字段，直接遍历其中的元素
+            try {
+                if (instance instanceof Collection<?> collection) {
+                    collection.stream().filter(Objects::nonNull).forEach(references::add);
+                } else if (instance instanceof Map<?, ?> map) {
+                    map.forEach((key, value) -> {
+                        references.add(key);
+                        if (value != null) {
+                            references.add(value);
+                        }
+                    });
+                }
+            } catch (RuntimeException e) {
+                // 集合正在被并发修改时跳过其中的元素
+            }
+            for (Field field : FIELDS.get(type)) {
+                try {
+                    Object value = field.get(instance);
+                    if (value != null) {
+                        references.add(value);
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return references;
+    }
+}
@@ -0,0 +1,20 @@
+package kuan.tdd.di;
+
+import java.util.List;
+
+/**
+ * 在作用域中持有实例的 provider，Context 会管理这些实例的生命周期
+ *
+ * @author qinxuekuan
+ * @date 2022/7/20
+ */
+interface ScopedProvider<T> extends ComponentProvider<T> {
+
+    // 作用域中已经创建出来的实例
+    List<T> instances();
+
+    // 替换依赖后，返回一个不持有已创建实例的新 provider；无法重建的作用域返回自身
+    default ScopedProvider<T> renew() {
+        return this;
+    }
+}
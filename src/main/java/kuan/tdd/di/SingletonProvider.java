@@ -2,9 +2,9 @@ package kuan.tdd.di;
 
 import java.util.List;
 
-class SingletonProvider<T> implements ComponentProvider<T> {
+class SingletonProvider<T> implements ScopedProvider<T> {
 
-    private T singleton;
+    private volatile T singleton;
     private ComponentProvider<T> provider;
 
     public SingletonProvider(ComponentProvider<T> provider) {
@@ -13,14 +13,36 @@ class SingletonProvider<T> implements ComponentProvider<T> {
 
     @Override
     public T get(Context context) {
-        if (singleton == null) {
-            singleton = provider.get(context);
+        T instance = singleton;
+        if (instance == null) {
+            synchronized (this) {
+                instance = singleton;
+                if (instance == null) {
+                    singleton = instance = provider.get(context);
+                }
+            }
         }
-        return singleton;
+        return instance;
     }
 
     @Override
     public List<ComponentRef<?>> getDependencies() {
         return provider.getDependencies();
     }
+
+    @Override
+    public List<T> instances() {
+        T instance = singleton;
+        return instance == null ? List.of() : List.of(instance);
+    }
+
+    @Override
+    public ScopedProvider<T> renew() {
+        return new SingletonProvider<>(provider);
+    }
+
+    @Override
+    public void destroy(T instance) {
+        provider.destroy(instance);
+    }
 }
@@ -0,0 +1,18 @@
+package kuan.tdd.di;
+
+/**
+ * 估算单个对象自身（不含引用的对象）占用的字节数，可以替换为基于 Instrumentation 或 JOL 的实现
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+@FunctionalInterface
+public interface SizeEstimator {
+
+    long shallowSize(Object instance);
+
+    // 按 64 位 JVM、开启压缩指针时的对象布局估算，不考虑字段重排带来的空隙
+    static SizeEstimator layout() {
+        return LayoutEstimator.INSTANCE;
+    }
+}
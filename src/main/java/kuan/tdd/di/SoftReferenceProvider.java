@@ -0,0 +1,61 @@
+package kuan.tdd.di;
+
+import java.lang.ref.SoftReference;
+import java.util.List;
+
+/**
+ * 通过 SoftReference 持有实例：内存紧张时 GC 可以回收，下次访问时重新创建，同时只有一个线程在创建
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+class SoftReferenceProvider<T> implements ScopedProvider<T> {
+
+    private final ComponentProvider<T> provider;
+    private volatile SoftReference<T> reference = new SoftReference<>(null);
+
+    public SoftReferenceProvider(ComponentProvider<T> provider) {
+        this.provider = provider;
+    }
+
+    static ScopeProvider scope() {
+        return SoftReferenceProvider::new;
+    }
+
+    @Override
+    public T get(Context context) {
+        T instance = reference.get();
+        if (instance == null) {
+            synchronized (this) {
+                instance = reference.get();
+                if (instance == null) {
+                    instance = provider.get(context);
+                    reference = new SoftReference<>(instance);
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public List<ComponentRef<?>> getDependencies() {
+        return provider.getDependencies();
+    }
+
+    // 已被回收的实例不再列出，也不会被销毁
+    @Override
+    public List<T> instances() {
+        T instance = reference.get();
+        return instance == null ? List.of() : List.of(instance);
+    }
+
+    @Override
+    public ScopedProvider<T> renew() {
+        return new SoftReferenceProvider<>(provider);
+    }
+
+    @Override
+    public void destroy(T instance) {
+        provider.destroy(instance);
+    }
+}
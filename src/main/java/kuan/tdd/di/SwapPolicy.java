@@ -0,0 +1,14 @@
+package kuan.tdd.di;
+
+/**
+ * 替换绑定时，如何处理已经持有旧依赖的作用域实例
+ *
+ * @author qinxuekuan
+ * @date 2022/7/23
+ */
+public enum SwapPolicy {
+    // 已经创建的实例保持不变，之后新创建的实例使用新的绑定
+    KEEP_DEPENDENTS,
+    // 直接或间接依赖了被替换组件的作用域（如 Singleton）重新创建实例；旧实例不会被销毁，仍在使用它们的调用不受影响
+    RENEW_DEPENDENTS
+}
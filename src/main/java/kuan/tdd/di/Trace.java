@@ -0,0 +1,17 @@
+package kuan.tdd.di;
+
+import java.util.List;
+
+/**
+ * 一次被采样的解析过程：解析的组件、所在的作用域及是否命中已有实例、耗时，以及解析它的依赖时的子过程
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+public record Trace(Component component, Class<?> scope, boolean hit, long nanos, Injection injection,
+                    List<Trace> dependencies) {
+
+    // 由 InjectionProvider 创建实例时各阶段的耗时（包括其中解析依赖的时间），其他方式得到的实例为 null
+    public record Injection(long constructorNanos, long fieldNanos, long methodNanos) {
+    }
+}
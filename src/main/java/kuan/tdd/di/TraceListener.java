@@ -0,0 +1,30 @@
+package kuan.tdd.di;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * 接收被采样的 Context.get / require / getOrNull 调用的完整解析树
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+@FunctionalInterface
+public interface TraceListener {
+
+    void traced(Trace trace);
+
+    // 只采样指定的 ref
+    static Predicate<ComponentRef<?>> refs(ComponentRef<?>... refs) {
+        Set<Component> components = Arrays.stream(refs).map(ComponentRef::component).collect(Collectors.toSet());
+        return ref -> components.contains(ref.component());
+    }
+
+    // 按比例随机采样
+    static Predicate<ComponentRef<?>> fraction(double fraction) {
+        return ref -> ThreadLocalRandom.current().nextDouble() < fraction;
+    }
+}
@@ -0,0 +1,152 @@
+package kuan.tdd.di;
+
+import kuan.tdd.di.exception.DependencyNotFoundException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 被采样的解析使用的 Context：每个组件的 provider 拿到一个自己的 TracingContext，
+ * 在其中解析的依赖记为这个组件的子过程；并发注入时各线程使用各自组件的 TracingContext
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+class TracingContext implements Context {
+
+    private final Function<ComponentRef<?>, ComponentProvider<?>> providers;
+    private final Context delegate;
+    private final List<Trace> dependencies = Collections.synchronizedList(new ArrayList<>());
+    private volatile Trace.Injection injection;
+
+    TracingContext(Function<ComponentRef<?>, ComponentProvider<?>> providers, Context delegate) {
+        this.providers = providers;
+        this.delegate = delegate;
+    }
+
+    // 比这次解析存活更久的工作（@Lazy 注入的对象、后台刷新）使用没有采样的 Context，
+    // 不会记录到已经结束的过程中，也不会让它一直存活
+    static Context untraced(Context context) {
+        return context instanceof TracingContext tracing ? tracing.delegate : context;
+    }
+
+    // 由 InjectionProvider 在创建实例后报告各阶段的耗时
+    void injected(Trace.Injection injection) {
+        this.injection = injection;
+    }
+
+    List<Trace> dependencies() {
+        return dependencies;
+    }
+
+    @Override
+    public <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> ref) {
+        return Optional.ofNullable(getOrNull(ref));
+    }
+
+    @Override
+    public <ComponentType> ComponentType require(ComponentRef<ComponentType> ref) {
+        return trace(ref, true);
+    }
+
+    @Override
+    public <ComponentType> ComponentType getOrNull(ComponentRef<ComponentType> ref) {
+        return trace(ref, false);
+    }
+
+    private <ComponentType> ComponentType trace(ComponentRef<ComponentType> ref, boolean required) {
+        ComponentProvider<?> provider = providers.apply(ref);
+        // 融合后的 provider 不经过 Context 解析子树，采样时使用原来的 provider，记录每个依赖
+        if (provider instanceof FusedProvider<?> fused) {
+            provider = fused.original();
+        }
+        if (provider == null) {
+            if (required) {
+                throw new DependencyNotFoundException(ref.component());
+            }
+            return null;
+        }
+        TracingContext context = new TracingContext(providers, delegate);
+        List<?> existing = provider instanceof ScopedProvider<?> scoped ? scoped.instances() : List.of();
+        long start = System.nanoTime();
+        Object instance = provider.get(context);
+        long nanos = System.nanoTime() - start;
+        boolean hit = existing.stream().anyMatch(e -> e == instance);
+        dependencies.add(new Trace(ref.component(), provider instanceof ScopedProvider ? provider.getClass() : null,
+                hit, nanos, context.injection, List.copyOf(context.dependencies)));
+        return (ComponentType) instance;
+    }
+
+    @Override
+    public Object[] resolve(ComponentRef<?>... refs) {
+        return delegate.resolve(refs);
+    }
+
+    @Override
+    public Resolver resolver(ComponentRef<?>... refs) {
+        return delegate.resolver(refs);
+    }
+
+    @Override
+    public <ComponentType> ComponentType[] create(ComponentRef<ComponentType> ref, ComponentType[] instances) {
+        return delegate.create(ref, instances);
+    }
+
+    @Override
+    public <T> T injectMembers(T instance) {
+        return delegate.injectMembers(instance);
+    }
+
+    @Override
+    public <ComponentType> void swap(ComponentRef<ComponentType> ref, ComponentType instance, SwapPolicy policy) {
+        delegate.swap(ref, instance, policy);
+    }
+
+    @Override
+    public <ComponentType, Implementation extends ComponentType>
+    void swap(ComponentRef<ComponentType> ref, Class<Implementation> implementation, SwapPolicy policy) {
+        delegate.swap(ref, implementation, policy);
+    }
+
+    @Override
+    public void trace(Predicate<ComponentRef<?>> sampler, TraceListener listener) {
+        delegate.trace(sampler, listener);
+    }
+
+    @Override
+    public void specialize(int threshold) {
+        delegate.specialize(threshold);
+    }
+
+    @Override
+    public void trackUsage(String role) {
+        delegate.trackUsage(role);
+    }
+
+    @Override
+    public UsageReport usage() {
+        return delegate.usage();
+    }
+
+    @Override
+    public HeapReport retainedHeap(SizeEstimator estimator) {
+        return delegate.retainedHeap(estimator);
+    }
+
+    @Override
+    public void initialize() {
+        delegate.initialize();
+    }
+
+    @Override
+    public void close(Duration timeout) {
+        delegate.close(timeout);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
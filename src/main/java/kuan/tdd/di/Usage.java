@@ -0,0 +1,56 @@
+package kuan.tdd.di;
+
+import java.util.*;
+
+/**
+ * 记录解析表中的组件是否被解析过。组件集合在开始记录时确定，之后只翻转每个组件的标记，
+ * 已经标记过的组件每次解析只多一次读取
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+class Usage {
+    private final String role;
+    private final Map<Component, Slot> slots = new HashMap<>();
+
+    private final Map<Class<?>, Slot> unqualified = new IdentityHashMap<>();
+
+    private static class Slot {
+        private volatile boolean used;
+    }
+
+    Usage(String role, Collection<Component> components) {
+        this.role = role;
+        for (Component component : components) {
+            Slot slot = new Slot();
+            slots.put(component, slot);
+            if (component.qualifier() == null) {
+                unqualified.put(component.type(), slot);
+            }
+        }
+    }
+
+    void mark(ComponentRef<?> ref) {
+        Slot slot = ref.getQualifier() == null
+                ? unqualified.get(ref.getComponent())
+                : slots.get(ref.component());
+        mark(slot);
+    }
+
+    void mark(Component component) {
+        mark(slots.get(component));
+    }
+
+    private static void mark(Slot slot) {
+        if (slot != null && !slot.used) {
+            slot.used = true;
+        }
+    }
+
+    UsageReport report() {
+        Set<Component> used = new HashSet<>();
+        Set<Component> unused = new HashSet<>();
+        slots.forEach((component, slot) -> (slot.used ? used : unused).add(component));
+        return new UsageReport(role, used, unused);
+    }
+}
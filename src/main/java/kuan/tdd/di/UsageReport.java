@@ -0,0 +1,49 @@
+package kuan.tdd.di;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 一次运行中组件的使用情况：role 标记运行的角色，used 为被直接或间接解析过的组件，unused 为从未被解析过的组件。
+ * 把 used 作为 roots 传给 ContextConfig.getContext，可以去掉这个角色用不到的组件
+ *
+ * @author qinxuekuan
+ * @date 2022/7/24
+ */
+public record UsageReport(String role, Set<Component> used, Set<Component> unused) {
+
+    public ComponentRef<?>[] roots() {
+        return used.stream().map(component -> ComponentRef.of(component.type(), component.qualifier()))
+                .toArray(ComponentRef<?>[]::new);
+    }
+
+    // 每行一个组件：role、used / unused、类型、Qualifier（没有时为空），以 tab 分隔
+    public String export() {
+        return Stream.concat(used.stream().map(component -> line(component, "used")),
+                        unused.stream().map(component -> line(component, "unused")))
+                .sorted()
+                .collect(Collectors.joining("\n"));
+    }
+
+    private String line(Component component, String state) {
+        return String.join("\t", role, state, component.type().getName(),
+                component.qualifier() == null ? "" : component.qualifier().toString());
+    }
+
+    // 各组件被哪些角色使用过，没有被任何角色使用的组件对应空集合
+    public static Map<Component, Set<String>> roles(Collection<UsageReport> reports) {
+        Map<Component, Set<String>> roles = new HashMap<>();
+        for (UsageReport report : reports) {
+            report.unused().forEach(component -> roles.computeIfAbsent(component, c -> new TreeSet<>()));
+            report.used().forEach(component -> roles.computeIfAbsent(component, c -> new TreeSet<>()).add(report.role()));
+        }
+        return roles;
+    }
+
+    // 在所有角色中都没有被解析过的组件
+    public static Set<Component> unusedInAll(Collection<UsageReport> reports) {
+        return roles(reports).entrySet().stream().filter(entry -> entry.getValue().isEmpty())
+                .map(Map.Entry::getKey).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,87 @@
+package kuan.tdd.di;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * @author qinxuekuan
+ * @date 2022/7/18
+ */
+final class Workers {
+
+    // JDK 17 还没有虚拟线程，使用按需创建的守护线程；嵌套的并发解析阻塞等待时也不会耗尽线程
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "di-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Workers() {
+    }
+
+    static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    // 同时执行所有任务，结果按任务顺序返回；任一任务失败，取消其余任务并抛出该任务的异常
+    static Object[] invokeAll(Callable<?>[] tasks) {
+        Object[] results = new Object[tasks.length];
+        CompletionService<Object> completion = new ExecutorCompletionService<>(EXECUTOR);
+        Future<?>[] futures = new Future<?>[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            int index = i;
+            futures[i] = completion.submit(() -> results[index] = tasks[index].call());
+        }
+        try {
+            for (int i = 0; i < tasks.length; i++) {
+                completion.take().get();
+            }
+            return results;
+        } catch (ExecutionException e) {
+            cancel(futures);
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 同时执行所有任务，返回失败任务的异常；超过 deadline 时取消未完成的任务并抛出 TimeoutException
+    static List<Throwable> runAll(List<Runnable> tasks, long deadline) throws TimeoutException {
+        Future<?>[] futures = tasks.stream().map(EXECUTOR::submit).toArray(Future<?>[]::new);
+        List<Throwable> failures = new ArrayList<>();
+        for (Future<?> future : futures) {
+            try {
+                future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                failures.add(e.getCause());
+            } catch (InterruptedException e) {
+                cancel(futures);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (TimeoutException e) {
+                cancel(futures);
+                throw e;
+            }
+        }
+        return failures;
+    }
+
+    private static void cancel(Future<?>[] futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException e) {
+            return e;
+        }
+        if (cause instanceof Error e) {
+            throw e;
+        }
+        return new IllegalStateException(cause);
+    }
+}
@@ -12,6 +12,10 @@ public class DependencyNotFoundException extends RuntimeException {
 
     private final Component dependency;
 
+    public DependencyNotFoundException(Component dependency) {
+        this(null, dependency);
+    }
+
     public DependencyNotFoundException(Component component, Component dependency) {
         this.component = component;
         this.dependency = dependency;
@@ -0,0 +1,13 @@
+package kuan.tdd.di.exception;
+
+/**
+ * @author qinxuekuan
+ * @date 2022/7/20
+ */
+public class LifecycleException extends RuntimeException {
+
+    public LifecycleException(String message) {
+        super(message);
+    }
+
+}
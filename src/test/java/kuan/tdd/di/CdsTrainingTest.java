@@ -0,0 +1,54 @@
+package kuan.tdd.di;
+
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author qinxuekuan
+ * @date 2022/7/22
+ */
+class CdsTrainingTest {
+
+    ContextConfig config;
+
+    @BeforeEach
+    public void setup() {
+        config = new ContextConfig();
+    }
+
+    static class CountedComponent implements TestComponent {
+        static final AtomicInteger created = new AtomicInteger();
+
+        @Inject
+        public CountedComponent(Dependency dependency) {
+            created.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void should_instantiate_every_component() throws IOException {
+        CountedComponent.created.set(0);
+        config.bind(TestComponent.class, CountedComponent.class);
+        config.bind(Dependency.class, new Dependency() {
+        });
+
+        Set<Class<?>> classes = CdsTraining.train(config);
+
+        assertEquals(1, CountedComponent.created.get());
+        assertTrue(classes.containsAll(Set.of(TestComponent.class, CountedComponent.class, Dependency.class)));
+    }
+
+    @Test
+    public void should_include_container_classes() throws IOException {
+        Set<Class<?>> classes = CdsTraining.train(config);
+
+        assertTrue(classes.containsAll(Set.of(ContextConfig.class, ComponentContext.class, InjectionProvider.class)));
+    }
+}
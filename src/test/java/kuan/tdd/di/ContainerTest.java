@@ -1,8 +1,23 @@
 package kuan.tdd.di;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import kuan.tdd.di.exception.IllegalComponentException;
+import kuan.tdd.di.exception.LifecycleException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author qinxuekuan
@@ -26,6 +41,267 @@ public class ContainerTest {
     @Nested
     public class LifecycleManagement {
 
+        static final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        @BeforeEach
+        public void before() {
+            events.clear();
+        }
+
+        static class Base {
+            @PostConstruct
+            void baseInit() {
+                events.add("base init");
+            }
+
+            @PostConstruct
+            void overridden() {
+                events.add("overridden in base");
+            }
+        }
+
+        static class PostConstructed extends Base {
+            @Inject
+            Dependency dependency;
+
+            @PostConstruct
+            void init() {
+                events.add(dependency == null ? "init before injection" : "init");
+            }
+
+            @Override
+            void overridden() {
+                events.add("overridden");
+            }
+        }
+
+        @Test
+        public void should_call_post_construct_after_injection_from_super_class() {
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(PostConstructed.class, PostConstructed.class);
+
+            config.getContext().get(ComponentRef.of(PostConstructed.class));
+
+            assertEquals(List.of("base init", "init"), events);
+        }
+
+        static class IllegalPostConstruct {
+            @PostConstruct
+            void init(Dependency dependency) {
+            }
+        }
+
+        @Test
+        public void should_throw_exception_if_lifecycle_method_has_parameter() {
+            assertThrows(IllegalComponentException.class,
+                    () -> config.bind(IllegalPostConstruct.class, IllegalPostConstruct.class));
+        }
+
+        @Singleton
+        static class Pool implements Dependency, AutoCloseable {
+            @PostConstruct
+            void init() {
+                events.add("init pool");
+            }
+
+            @PreDestroy
+            void destroy() {
+                events.add("destroy pool");
+            }
+
+            @Override
+            public void close() {
+                events.add("close pool");
+            }
+        }
+
+        @Singleton
+        static class Service implements TestComponent {
+            @Inject
+            Dependency dependency;
+
+            @PostConstruct
+            void init() {
+                events.add("init service");
+            }
+
+            @PreDestroy
+            void destroy() {
+                events.add("destroy service");
+            }
+        }
+
+        @Test
+        public void should_initialize_scoped_components_by_dependency_level() {
+            config.bind(TestComponent.class, Service.class);
+            config.bind(Dependency.class, Pool.class);
+
+            config.getContext().initialize();
+
+            assertEquals(List.of("init pool", "init service"), events);
+        }
+
+        @Test
+        public void should_close_scoped_instances_in_reverse_dependency_order() {
+            config.bind(TestComponent.class, Service.class);
+            config.bind(Dependency.class, Pool.class);
+            Context context = config.getContext();
+            context.get(ComponentRef.of(TestComponent.class));
+            events.clear();
+
+            context.close();
+
+            assertEquals(List.of("destroy service", "destroy pool", "close pool"), events);
+        }
+
+        @Test
+        public void should_not_close_instances_never_created() {
+            config.bind(TestComponent.class, Service.class);
+            config.bind(Dependency.class, Pool.class);
+
+            config.getContext().close();
+
+            assertTrue(events.isEmpty());
+        }
+
+        static final CountDownLatch closing = new CountDownLatch(2);
+
+        @Singleton
+        static class SlowClosing implements Dependency, AutoCloseable {
+            @Override
+            public void close() throws InterruptedException {
+                closing.countDown();
+                events.add(closing.await(5, TimeUnit.SECONDS) ? "closed concurrently" : "closed alone");
+            }
+        }
+
+        @Singleton
+        static class AnotherSlowClosing extends SlowClosing implements AnotherDependency {
+        }
+
+        @Test
+        public void should_close_independent_instances_concurrently() {
+            config.bind(Dependency.class, SlowClosing.class);
+            config.bind(AnotherDependency.class, AnotherSlowClosing.class);
+            Context context = config.getContext();
+            context.initialize();
+
+            context.close();
+
+            assertEquals(List.of("closed concurrently", "closed concurrently"), events);
+        }
+
+        @Singleton
+        static class NeverClosing implements Dependency, AutoCloseable {
+            @Override
+            public void close() throws InterruptedException {
+                new CountDownLatch(1).await();
+            }
+        }
+
+        @Test
+        public void should_throw_exception_if_shutdown_exceeds_timeout() {
+            config.bind(Dependency.class, NeverClosing.class);
+            Context context = config.getContext();
+            context.initialize();
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> assertThrows(LifecycleException.class, () -> context.close(Duration.ofMillis(100))));
+        }
+
+        @Singleton
+        static class FailedClosing implements Dependency, AutoCloseable {
+            @Override
+            public void close() {
+                throw new IllegalStateException();
+            }
+        }
+
+        @Test
+        public void should_close_other_instances_if_closing_failed() {
+            config.bind(Dependency.class, FailedClosing.class);
+            config.bind(TestComponent.class, Service.class);
+            Context context = config.getContext();
+            context.initialize();
+            events.clear();
+
+            LifecycleException exception = assertThrows(LifecycleException.class, () -> context.close());
+
+            assertEquals(1, exception.getSuppressed().length);
+            assertEquals(List.of("destroy service"), events);
+        }
+
+        @Singleton
+        static class SharedClosing implements Dependency, AutoCloseable {
+            @Override
+            public void close() {
+                events.add("close shared");
+            }
+        }
+
+        @Test
+        public void should_close_instance_bound_with_multi_qualifiers_once() {
+            config.bind(Dependency.class, SharedClosing.class, new NamedLiteral("primary"), new NamedLiteral("backup"));
+            Context context = config.getContext();
+            context.initialize();
+
+            context.close();
+
+            assertEquals(List.of("close shared"), events);
+        }
+
+        @Test
+        public void should_not_close_again_if_already_closed() {
+            config.bind(Dependency.class, SharedClosing.class);
+            Context context = config.getContext();
+            context.initialize();
+            context.close();
+
+            context.close();
+
+            assertEquals(List.of("close shared"), events);
+        }
+
+        @Test
+        public void should_throw_exception_if_resolve_after_closed() {
+            config.bind(Dependency.class, SharedClosing.class);
+            Context context = config.getContext();
+            context.close();
+
+            assertThrows(LifecycleException.class, () -> context.get(ComponentRef.of(Dependency.class)));
+            assertThrows(LifecycleException.class, () -> context.require(ComponentRef.of(Dependency.class)));
+        }
+
+        @Test
+        public void should_create_new_context_after_closed() {
+            config.bind(Dependency.class, SharedClosing.class);
+            Context context = config.getContext();
+            Dependency closed = context.require(ComponentRef.of(Dependency.class));
+            context.close();
+
+            Context reopened = config.getContext();
+
+            assertNotSame(context, reopened);
+            assertNotSame(closed, reopened.require(ComponentRef.of(Dependency.class)));
+        }
+
+        @Test
+        public void should_not_destroy_instances_of_other_context_when_closing_pruned_context() {
+            config.bind(Dependency.class, SharedClosing.class);
+            config.bind(TestComponent.class, ComponentWithInjectConstructor.class);
+            Context full = config.getContext();
+            Dependency dependency = full.require(ComponentRef.of(Dependency.class));
+            Context pruned = config.getContext(ComponentRef.of(Dependency.class));
+            pruned.require(ComponentRef.of(Dependency.class));
+
+            pruned.close();
+
+            assertEquals(List.of("close shared"), events);
+            assertSame(dependency, ((ComponentWithInjectConstructor) full.require(ComponentRef.of(TestComponent.class))).getDependency());
+            full.close();
+            assertEquals(List.of("close shared", "close shared"), events);
+        }
     }
 
 
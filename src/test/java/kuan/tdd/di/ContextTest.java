@@ -11,11 +11,24 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.lang.annotation.Annotation;
 import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -58,6 +71,55 @@ class ContextTest {
             assertTrue(component.isEmpty());
         }
 
+        @Test
+        public void should_not_retrieve_type_bound_after_context_created() {
+            Context context = config.getContext();
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isEmpty());
+
+            config.bind(TestComponent.class, new TestComponent() {
+            });
+
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isEmpty());
+            assertTrue(config.getContext().get(ComponentRef.of(TestComponent.class)).isPresent());
+        }
+
+        @Lazy
+        public static class LazyDependency implements Dependency {
+        }
+
+        @Singleton
+        public static class ProviderHolder {
+            final Provider<Dependency> dependencies;
+
+            @Inject
+            public ProviderHolder(Provider<Dependency> dependencies) {
+                this.dependencies = dependencies;
+            }
+        }
+
+        @Test
+        public void should_collect_dropped_context() throws InterruptedException {
+            WeakReference<Context> reference = dropped();
+
+            for (int i = 0; i < 50 && reference.get() != null; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+
+            assertNull(reference.get());
+        }
+
+        // 单例持有引用回 Context 的 Provider 与 Lazy 代理，并开启使用记录
+        private WeakReference<Context> dropped() {
+            ContextConfig config = new ContextConfig();
+            config.bind(Dependency.class, LazyDependency.class);
+            config.bind(ProviderHolder.class, ProviderHolder.class);
+            Context context = config.getContext();
+            context.trackUsage("test");
+            context.require(ComponentRef.of(ProviderHolder.class)).dependencies.get().hashCode();
+            return new WeakReference<>(context);
+        }
+
         @ParameterizedTest(name = "supporting {0}")
         @MethodSource
         public void should_bind_type_to_an_injectable_component(Class<? extends TestComponent> componentType) {
@@ -737,65 +799,2252 @@ class ContextTest {
         }
 
     }
-}
 
+    @Nested
+    class Pruning {
 
-record NamedLiteral(String value) implements jakarta.inject.Named {
-    @Override
-    public Class<? extends Annotation> annotationType() {
-        return jakarta.inject.Named.class;
-    }
+        @Test
+        public void should_retrieve_root_and_its_dependencies() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(Dependency.class, dependency);
+            config.bind(ComponentWithInjectConstructor.class, ComponentWithInjectConstructor.class);
 
-    @Override
-    public boolean equals(Object obj) {
-        if (obj instanceof jakarta.inject.Named named) {
-            return Objects.equals(value, named.value());
+            Context context = config.getContext(ComponentRef.of(ComponentWithInjectConstructor.class));
+
+            assertSame(dependency, context.get(ComponentRef.of(ComponentWithInjectConstructor.class)).get().getDependency());
+            assertSame(dependency, context.get(ComponentRef.of(Dependency.class)).get());
         }
-        return false;
-    }
 
-    @Override
-    public int hashCode() {
-        return "value".hashCode() * 127 ^ value.hashCode();
+        @Test
+        public void should_drop_component_unreachable_from_roots() {
+            config.bind(TestComponent.class, new TestComponent() {
+            });
+            config.bind(Dependency.class, new Dependency() {
+            });
+
+            Context context = config.getContext(ComponentRef.of(TestComponent.class));
+
+            assertTrue(context.get(ComponentRef.of(Dependency.class)).isEmpty());
+        }
+
+        @Test
+        public void should_retrieve_dependency_declared_as_provider() {
+            config.bind(TestComponent.class, DependencyCheck.CyclicComponentInjectConstructor.class);
+            config.bind(Dependency.class, DependencyCheck.CyclicDependencyProviderConstructor.class);
+
+            Context context = config.getContext(ComponentRef.of(Dependency.class));
+
+            assertTrue(context.get(ComponentRef.of(Dependency.class)).isPresent());
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isPresent());
+        }
+
+        @Test
+        public void should_not_check_dependencies_of_unreachable_component() {
+            config.bind(TestComponent.class, DependencyCheck.MissingDependencyConstructor.class);
+            config.bind(Dependency.class, new Dependency() {
+            });
+
+            assertDoesNotThrow(() -> config.getContext(ComponentRef.of(Dependency.class)));
+        }
+
+        @Test
+        public void should_throw_exception_if_reachable_dependency_not_found() {
+            config.bind(TestComponent.class, ComponentWithInjectConstructor.class);
+            config.bind(Dependency.class, DependencyWithInjectConstructor.class);
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class,
+                    () -> config.getContext(ComponentRef.of(TestComponent.class)));
+            assertEquals(String.class, exception.getDependency().type());
+        }
+
+        @Test
+        public void should_throw_exception_if_root_not_bound() {
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class,
+                    () -> config.getContext(ComponentRef.of(String.class)));
+            assertEquals(new Component(String.class, null), exception.getDependency());
+        }
     }
-}
 
-@java.lang.annotation.Documented
-@java.lang.annotation.Retention(RUNTIME)
-@jakarta.inject.Qualifier
-@interface Skywalker {
-}
+    @Nested
+    class BulkBinding {
 
-record SkywalkerLiteral() implements Skywalker {
-    @Override
-    public Class<? extends Annotation> annotationType() {
-        return Skywalker.class;
+        @Test
+        public void should_bind_all_implementations() {
+            Map<Class<?>, Class<?>> bindings = new LinkedHashMap<>();
+            bindings.put(TestComponent.class, ComponentWithInjectConstructor.class);
+            bindings.put(Dependency.class, TypeBinding.WithScope.SingletonAnnotated.class);
+            config.bindAll(bindings);
+
+            Context context = config.getContext();
+
+            Dependency dependency = context.get(ComponentRef.of(Dependency.class)).get();
+            assertSame(dependency, context.get(ComponentRef.of(Dependency.class)).get());
+            assertSame(dependency, ((ComponentWithInjectConstructor) context.get(ComponentRef.of(TestComponent.class)).get()).getDependency());
+        }
+
+        @Test
+        public void should_bind_qualified_implementation() {
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bindAll(Map.of(TestComponent.class, QualifiedComponent.class));
+
+            Context context = config.getContext();
+
+            assertTrue(context.get(ComponentRef.of(TestComponent.class, new SkywalkerLiteral())).isPresent());
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isEmpty());
+        }
+
+        @Skywalker
+        static class QualifiedComponent implements TestComponent {
+        }
+
+        @Test
+        public void should_throw_first_failure_in_binding_order() {
+            Map<Class<?>, Class<?>> bindings = new LinkedHashMap<>();
+            bindings.put(Dependency.class, TypeBinding.WithScope.SingletonAnnotated.class);
+            bindings.put(TestComponent.class, ComponentWithMultiInjectConstructors.class);
+            bindings.put(AnotherDependency.class, TypeBinding.WithScope.MultiScopeAnnotated.class);
+
+            assertThrows(IllegalComponentException.class, () -> config.bindAll(bindings));
+
+            Context context = config.getContext();
+            assertTrue(context.get(ComponentRef.of(Dependency.class)).isPresent());
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isEmpty());
+            assertTrue(context.get(ComponentRef.of(AnotherDependency.class)).isEmpty());
+        }
+
+        @Test
+        public void should_throw_exception_if_implementation_not_assignable_to_type() {
+            assertThrows(IllegalComponentException.class,
+                    () -> config.bindAll(Map.of(Dependency.class, ComponentWithDefaultConstructor.class)));
+        }
     }
 
-    @Override
-    public boolean equals(Object obj) {
-        return obj instanceof Skywalker;
+    @Nested
+    class BatchResolution {
+
+        @Test
+        public void should_resolve_refs_in_order() {
+            TestComponent component = new TestComponent() {
+            };
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(TestComponent.class, component);
+            config.bind(Dependency.class, dependency);
+
+            Object[] instances = config.getContext().resolve(ComponentRef.of(Dependency.class), ComponentRef.of(TestComponent.class));
+
+            assertArrayEquals(new Object[]{dependency, component}, instances);
+        }
+
+        @Test
+        public void should_resolve_null_for_unbind_ref() {
+            config.bind(TestComponent.class, new TestComponent() {
+            });
+
+            Object[] instances = config.getContext().resolve(ComponentRef.of(Dependency.class),
+                    new ComponentRef<List<TestComponent>>() {
+                    });
+
+            assertArrayEquals(new Object[]{null, null}, instances);
+        }
+
+        @Test
+        public void should_resolve_provider_ref() {
+            TestComponent component = new TestComponent() {
+            };
+            config.bind(TestComponent.class, component, new SkywalkerLiteral());
+
+            Object[] instances = config.getContext().resolve(new ComponentRef<Provider<TestComponent>>(new SkywalkerLiteral()) {
+            });
+
+            assertSame(component, ((Provider<?>) instances[0]).get());
+        }
+
+        @Test
+        public void should_reuse_resolver() {
+            config.bind(TestComponent.class, ComponentWithDefaultConstructor.class);
+            config.bind(Dependency.class, TypeBinding.WithScope.SingletonAnnotated.class);
+            Resolver resolver = config.getContext().resolver(ComponentRef.of(TestComponent.class), ComponentRef.of(Dependency.class));
+
+            Object[] first = new Object[2];
+            Object[] second = new Object[2];
+            resolver.resolve(first);
+            resolver.resolve(second);
+
+            assertNotSame(first[0], second[0]);
+            assertSame(first[1], second[1]);
+        }
     }
-}
 
-record TestLiteral() implements Test {
-    @Override
-    public Class<? extends Annotation> annotationType() {
-        return Test.class;
+    @Nested
+    class NonOptionalAccess {
+
+        @Test
+        public void should_require_bind_component() {
+            TestComponent instance = new TestComponent() {
+            };
+            config.bind(TestComponent.class, instance);
+
+            assertSame(instance, config.getContext().require(ComponentRef.of(TestComponent.class)));
+        }
+
+        @Test
+        public void should_throw_exception_if_required_component_not_found() {
+            Context context = config.getContext();
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class,
+                    () -> context.require(ComponentRef.of(TestComponent.class, new SkywalkerLiteral())));
+            assertEquals(new Component(TestComponent.class, new SkywalkerLiteral()), exception.getDependency());
+        }
+
+        @Test
+        public void should_retrieve_null_for_unbind_type() {
+            assertNull(config.getContext().getOrNull(ComponentRef.of(TestComponent.class)));
+        }
+
+        @Test
+        public void should_retrieve_provider_for_bind_type() {
+            TestComponent instance = new TestComponent() {
+            };
+            config.bind(TestComponent.class, instance);
+
+            Provider<TestComponent> provider = config.getContext().getOrNull(new ComponentRef<Provider<TestComponent>>() {
+            });
+
+            assertSame(instance, provider.get());
+        }
     }
-}
 
-record SingletonLiteral() implements Singleton {
-    @Override
-    public Class<? extends Annotation> annotationType() {
-        return Singleton.class;
+    @Nested
+    class LazyBinding {
+
+        interface Service {
+            Dependency dependency();
+        }
+
+        static class ExpensiveService implements Service {
+            static final AtomicInteger created = new AtomicInteger();
+            private final Dependency dependency;
+
+            @Inject
+            public ExpensiveService(Dependency dependency) {
+                created.incrementAndGet();
+                this.dependency = dependency;
+            }
+
+            @Override
+            public Dependency dependency() {
+                return dependency;
+            }
+        }
+
+        @Lazy
+        static class LazyAnnotatedService extends ExpensiveService {
+            @Inject
+            public LazyAnnotatedService(Dependency dependency) {
+                super(dependency);
+            }
+        }
+
+        static class ServiceConsumer {
+            Service service;
+
+            @Inject
+            public ServiceConsumer(Service service) {
+                this.service = service;
+            }
+        }
+
+        private final Dependency dependency = new Dependency() {
+        };
+
+        @BeforeEach
+        public void before() {
+            ExpensiveService.created.set(0);
+            config.bind(Dependency.class, dependency);
+            config.bind(ServiceConsumer.class, ServiceConsumer.class);
+        }
+
+        @Test
+        public void should_build_lazy_component_on_first_method_call() {
+            config.bind(Service.class, ExpensiveService.class, new LazyLiteral());
+
+            ServiceConsumer consumer = config.getContext().get(ComponentRef.of(ServiceConsumer.class)).get();
+            assertEquals(0, ExpensiveService.created.get());
+
+            assertSame(dependency, consumer.service.dependency());
+            assertSame(dependency, consumer.service.dependency());
+            assertEquals(1, ExpensiveService.created.get());
+        }
+
+        @Test
+        public void should_retrieve_lazy_annotation_from_component() {
+            config.bind(Service.class, LazyAnnotatedService.class);
+
+            ServiceConsumer consumer = config.getContext().get(ComponentRef.of(ServiceConsumer.class)).get();
+            assertEquals(0, ExpensiveService.created.get());
+
+            consumer.service.dependency();
+            assertEquals(1, ExpensiveService.created.get());
+        }
+
+        @Test
+        public void should_share_lazy_singleton() {
+            config.bind(Service.class, ExpensiveService.class, new LazyLiteral(), new SingletonLiteral());
+            Context context = config.getContext();
+
+            Service service = context.get(ComponentRef.of(Service.class)).get();
+            assertSame(service, context.get(ComponentRef.of(Service.class)).get());
+            service.dependency();
+            context.get(ComponentRef.of(Service.class)).get().dependency();
+            assertEquals(1, ExpensiveService.created.get());
+        }
+
+        @Test
+        public void should_check_dependencies_of_lazy_component() {
+            config.bind(TestComponent.class, DependencyCheck.MissingDependencyConstructor.class, new LazyLiteral());
+
+            assertThrows(DependencyNotFoundException.class, () -> config.getContext());
+        }
+
+        public interface Calculator {
+            long add(int a, long b, double c, float d, boolean e);
+
+            default String name() {
+                return "default";
+            }
+        }
+
+        static class ExpensiveCalculator implements Calculator {
+            @Inject
+            public ExpensiveCalculator() {
+            }
+
+            @Override
+            public long add(int a, long b, double c, float d, boolean e) {
+                return a + b + (long) c + (long) d + (e ? 1 : 0);
+            }
+
+            @Override
+            public String name() {
+                return "expensive";
+            }
+
+            @Override
+            public String toString() {
+                return "calculator";
+            }
+        }
+
+        @Test
+        public void should_forward_calls_without_reflective_proxy() {
+            config.bind(Calculator.class, ExpensiveCalculator.class, new LazyLiteral());
+
+            Calculator calculator = config.getContext(ComponentRef.of(Calculator.class)).require(ComponentRef.of(Calculator.class));
+
+            assertFalse(java.lang.reflect.Proxy.isProxyClass(calculator.getClass()));
+            assertTrue(calculator.getClass().isHidden());
+            assertEquals(16, calculator.add(1, 2, 3.5, 9.9f, true));
+            assertEquals("expensive", calculator.name());
+        }
+
+        @Test
+        public void should_forward_object_methods_to_component() {
+            config.bind(Calculator.class, ExpensiveCalculator.class, new LazyLiteral());
+
+            Calculator calculator = config.getContext(ComponentRef.of(Calculator.class)).require(ComponentRef.of(Calculator.class));
+
+            assertEquals("calculator", calculator.toString());
+            assertNotEquals(0, calculator.hashCode());
+            assertFalse(calculator.equals(calculator));
+        }
+
+        @Test
+        public void should_throw_exception_if_lazy_type_not_interface() {
+            assertThrows(IllegalComponentException.class,
+                    () -> config.bind(ExpensiveService.class, ExpensiveService.class, new LazyLiteral()));
+        }
     }
-}
 
-@Scope
-@Documented
-@Retention(RUNTIME)
-@interface Pooled {
+    @Nested
+    class IncrementalValidation {
+
+        @Scope
+        @Documented
+        @Retention(RUNTIME)
+        @interface Counted {
+        }
+
+        static class CountedProvider<T> implements ComponentProvider<T> {
+            static final Map<Class<?>, Integer> checked = new HashMap<>();
+            private final ComponentProvider<T> provider;
+
+            CountedProvider(ComponentProvider<T> provider) {
+                this.provider = provider;
+            }
+
+            @Override
+            public T get(Context context) {
+                return provider.get(context);
+            }
+
+            @Override
+            public List<ComponentRef<?>> getDependencies() {
+                checked.merge(provider.getDependencies().get(0).getComponent(), 1, Integer::sum);
+                return provider.getDependencies();
+            }
+        }
+
+        @Counted
+        static class CountedComponent implements TestComponent {
+            @Inject
+            Dependency dependency;
+        }
+
+        @Counted
+        static class CountedDependency implements Dependency {
+            @Inject
+            AnotherDependency dependency;
+        }
+
+        @BeforeEach
+        public void before() {
+            CountedProvider.checked.clear();
+            config.scope(Counted.class, CountedProvider::new);
+            config.bind(TestComponent.class, CountedComponent.class);
+            config.bind(Dependency.class, CountedDependency.class);
+            config.bind(AnotherDependency.class, new AnotherDependency() {
+            });
+        }
+
+        @Test
+        public void should_reuse_context_if_nothing_bound() {
+            Context context = config.getContext();
+
+            assertSame(context, config.getContext());
+            assertEquals(Map.of(Dependency.class, 1, AnotherDependency.class, 1), CountedProvider.checked);
+        }
+
+        @Test
+        public void should_not_check_again_if_unrelated_component_bound() {
+            Context context = config.getContext();
+            config.bind(String.class, "unrelated");
+
+            assertNotSame(context, config.getContext());
+            assertEquals(Map.of(Dependency.class, 1, AnotherDependency.class, 1), CountedProvider.checked);
+        }
+
+        @Test
+        public void should_check_again_components_depending_on_bound_component() {
+            config.getContext();
+            config.bind(AnotherDependency.class, new AnotherDependency() {
+            });
+
+            config.getContext();
+
+            assertEquals(Map.of(Dependency.class, 2, AnotherDependency.class, 2), CountedProvider.checked);
+        }
+
+        @Test
+        public void should_only_check_again_dependents_of_bound_component() {
+            config.getContext();
+            config.bind(Dependency.class, new Dependency() {
+            });
+
+            config.getContext();
+
+            assertEquals(Map.of(Dependency.class, 2, AnotherDependency.class, 1), CountedProvider.checked);
+        }
+
+        @Test
+        public void should_throw_exception_if_rebound_component_breaks_dependents() {
+            config.getContext();
+            config.bind(Dependency.class, DependencyCheck.CyclicDependencyInjectConstructor.class);
+
+            assertThrows(CyclicDependenciesFoundException.class, () -> config.getContext());
+        }
+    }
+
+    @Nested
+    class DeferredBinding {
+
+        static class RecordingClassLoader extends ClassLoader {
+            final List<String> loaded = new ArrayList<>();
+
+            RecordingClassLoader() {
+                super(DeferredBinding.class.getClassLoader());
+            }
+
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                loaded.add(name);
+                return super.loadClass(name, resolve);
+            }
+        }
+
+        private final RecordingClassLoader loader = new RecordingClassLoader();
+        private final Dependency dependency = new Dependency() {
+        };
+
+        @BeforeEach
+        public void before() {
+            config.bind(Dependency.class, dependency);
+        }
+
+        @Test
+        public void should_bind_type_to_implementation_name() {
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class.getName(), loader);
+
+            TestComponent component = config.getContext().get(ComponentRef.of(TestComponent.class)).get();
+
+            assertSame(dependency, component.dependency());
+        }
+
+        @Test
+        public void should_not_load_implementation_if_not_reached() {
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class.getName(), loader);
+
+            config.getContext(ComponentRef.of(Dependency.class));
+            assertTrue(loader.loaded.isEmpty());
+
+            config.getContext(ComponentRef.of(TestComponent.class));
+            assertEquals(List.of(TypeBinding.ConstructorInjection.class.getName()), loader.loaded);
+        }
+
+        @Test
+        public void should_bind_implementation_name_with_qualifier() {
+            config.bind(TestComponent.class, TypeBinding.FieldInjection.class.getName(), loader, new SkywalkerLiteral());
+
+            Context context = config.getContext();
+
+            assertSame(dependency, context.get(ComponentRef.of(TestComponent.class, new SkywalkerLiteral())).get().dependency());
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isEmpty());
+        }
+
+        @Test
+        public void should_retrieve_scope_annotation_from_loaded_implementation() {
+            config.bind(AnotherDependency.class, ScopedImplementation.class.getName(), loader);
+
+            Context context = config.getContext();
+
+            assertSame(context.get(ComponentRef.of(AnotherDependency.class)).get(),
+                    context.get(ComponentRef.of(AnotherDependency.class)).get());
+        }
+
+        @Singleton
+        static class ScopedImplementation implements AnotherDependency {
+        }
+
+        @Test
+        public void should_check_dependencies_of_loaded_implementation() {
+            config.bind(Dependency.class, DependencyWithInjectConstructor.class.getName(), loader, new SkywalkerLiteral());
+
+            assertThrows(DependencyNotFoundException.class, () -> config.getContext());
+        }
+
+        @Test
+        public void should_throw_exception_if_implementation_not_found() {
+            config.bind(TestComponent.class, "kuan.tdd.di.NotExisted", loader);
+
+            assertThrows(IllegalComponentException.class, () -> config.getContext());
+        }
+
+        @Test
+        public void should_throw_exception_if_implementation_not_assignable_to_type() {
+            config.bind(TestComponent.class, ScopedImplementation.class.getName(), loader);
+
+            assertThrows(IllegalComponentException.class, () -> config.getContext());
+        }
+
+        @Test
+        public void should_throw_exception_if_illegal_annotation_given() {
+            assertThrows(IllegalComponentException.class,
+                    () -> config.bind(TestComponent.class, ScopedImplementation.class.getName(), loader, new TestLiteral()));
+        }
+    }
+
+    @Nested
+    class MemberInjection {
+
+        static class ExternalBase {
+            Dependency baseDependency;
+
+            @Inject
+            public void install(Dependency dependency) {
+                this.baseDependency = dependency;
+            }
+        }
+
+        static class ExternalObject extends ExternalBase {
+            @Inject
+            Dependency dependency;
+
+            @Inject
+            @Skywalker
+            Dependency skywalker;
+        }
+
+        static class FinalFieldObject {
+            @Inject
+            final Dependency dependency = null;
+        }
+
+        private final Dependency dependency = new Dependency() {
+        };
+
+        private final Dependency skywalker = new Dependency() {
+        };
+
+        @BeforeEach
+        public void setup() {
+            config.bind(Dependency.class, dependency);
+            config.bind(Dependency.class, skywalker, new SkywalkerLiteral());
+        }
+
+        @Test
+        public void should_inject_fields_and_methods_into_existing_instance() {
+            ExternalObject instance = new ExternalObject();
+
+            assertSame(instance, config.getContext().injectMembers(instance));
+            assertSame(dependency, instance.dependency);
+            assertSame(skywalker, instance.skywalker);
+            assertSame(dependency, instance.baseDependency);
+        }
+
+        @Test
+        public void should_reuse_injection_plan_for_same_class() {
+            Context context = config.getContext();
+            context.injectMembers(new ExternalObject());
+            context.injectMembers(new ExternalObject());
+
+            InjectionProvider.Members members = InjectionProvider.members(ExternalObject.class);
+            assertSame(members, InjectionProvider.members(ExternalObject.class));
+            assertEquals(2, members.fields().size());
+            assertEquals(1, members.methods().size());
+        }
+
+        @Test
+        public void should_throw_exception_if_dependency_not_found() {
+            ContextConfig empty = new ContextConfig();
+
+            assertThrows(DependencyNotFoundException.class, () -> empty.getContext().injectMembers(new ExternalObject()));
+        }
+
+        @Test
+        public void should_throw_exception_if_inject_field_is_final() {
+            assertThrows(IllegalComponentException.class, () -> config.getContext().injectMembers(new FinalFieldObject()));
+        }
+    }
+
+    @Nested
+    class AssistedInjection {
+
+        static class Message {
+            final Dependency dependency;
+            final String body;
+            final int priority;
+
+            @Inject
+            public Message(Dependency dependency, @Assisted String body, @Assisted int priority) {
+                this.dependency = dependency;
+                this.body = body;
+                this.priority = priority;
+            }
+        }
+
+        interface MessageFactory {
+            Message create(String body, int priority);
+        }
+
+        static class Reply extends Message {
+            @Inject
+            public Reply(@Assisted String body, Dependency dependency, @Assisted int priority) {
+                super(dependency, body, priority);
+            }
+        }
+
+        static class InjectFieldMessage extends Message {
+            @Inject
+            AnotherDependency another;
+
+            @Inject
+            public InjectFieldMessage(Dependency dependency, @Assisted String body, @Assisted int priority) {
+                super(dependency, body, priority);
+            }
+        }
+
+        interface MismatchedFactory {
+            Message create(int priority, String body);
+        }
+
+        public static class PrototypeDependency implements Dependency {
+        }
+
+        @Test
+        public void should_pass_runtime_arguments_and_container_dependencies_to_constructor() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(Dependency.class, dependency);
+            config.bindFactory(MessageFactory.class, Message.class);
+
+            Message message = config.getContext().require(ComponentRef.of(MessageFactory.class)).create("hello", 3);
+
+            assertSame(dependency, message.dependency);
+            assertEquals("hello", message.body);
+            assertEquals(3, message.priority);
+        }
+
+        @ParameterizedTest
+        @ValueSource(classes = {Message.class, Reply.class})
+        public void should_generate_factory_class_for_any_argument_order(Class<? extends Message> implementation) {
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bindFactory(MessageFactory.class, implementation);
+
+            MessageFactory factory = config.getContext().require(ComponentRef.of(MessageFactory.class));
+
+            assertFalse(java.lang.reflect.Proxy.isProxyClass(factory.getClass()));
+            assertNotNull(factory.toString());
+            assertEquals(System.identityHashCode(factory), factory.hashCode());
+            assertTrue(factory.equals(factory));
+            assertFalse(factory.equals(config.getContext().require(ComponentRef.of(MessageFactory.class))));
+        }
+
+        static class Sample {
+            final long time;
+            final Dependency dependency;
+            final double value;
+
+            @Inject
+            public Sample(@Assisted long time, Dependency dependency, @Assisted double value) {
+                this.time = time;
+                this.dependency = dependency;
+                this.value = value;
+            }
+        }
+
+        interface SampleFactory {
+            Sample create(long time, double value);
+        }
+
+        @Test
+        public void should_reorder_wide_primitive_runtime_arguments() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(Dependency.class, dependency);
+            config.bindFactory(SampleFactory.class, Sample.class);
+
+            Sample sample = config.getContext().require(ComponentRef.of(SampleFactory.class)).create(Long.MAX_VALUE, 0.5);
+
+            assertEquals(Long.MAX_VALUE, sample.time);
+            assertSame(dependency, sample.dependency);
+            assertEquals(0.5, sample.value);
+        }
+
+        @Test
+        public void should_support_runtime_arguments_in_any_position() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(Dependency.class, dependency);
+            config.bindFactory(MessageFactory.class, Reply.class);
+
+            Message message = config.getContext().require(ComponentRef.of(MessageFactory.class)).create("hello", 3);
+
+            assertTrue(message instanceof Reply);
+            assertSame(dependency, message.dependency);
+            assertEquals("hello", message.body);
+            assertEquals(3, message.priority);
+        }
+
+        @Test
+        public void should_resolve_dependencies_once_per_factory() {
+            config.bind(Dependency.class, PrototypeDependency.class);
+            config.bindFactory(MessageFactory.class, Message.class);
+
+            MessageFactory factory = config.getContext().require(ComponentRef.of(MessageFactory.class));
+
+            assertSame(factory.create("a", 1).dependency, factory.create("b", 2).dependency);
+        }
+
+        @Test
+        public void should_bind_factory_with_qualifier() {
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bindFactory(MessageFactory.class, Message.class, new SkywalkerLiteral());
+
+            Context context = config.getContext();
+
+            assertTrue(context.get(ComponentRef.of(MessageFactory.class, new SkywalkerLiteral())).isPresent());
+            assertTrue(context.get(ComponentRef.of(MessageFactory.class)).isEmpty());
+        }
+
+        @Test
+        public void should_throw_exception_if_dependency_not_found() {
+            config.bindFactory(MessageFactory.class, Message.class);
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class, () -> config.getContext());
+            assertEquals(new Component(MessageFactory.class, null), exception.getComponent());
+        }
+
+        @Test
+        public void should_throw_exception_if_factory_method_not_match_runtime_arguments() {
+            assertThrows(IllegalComponentException.class, () -> config.bindFactory(MismatchedFactory.class, Message.class));
+        }
+
+        @Test
+        public void should_throw_exception_if_implementation_has_inject_members() {
+            assertThrows(IllegalComponentException.class, () -> config.bindFactory(MessageFactory.class, InjectFieldMessage.class));
+        }
+
+        @Test
+        public void should_throw_exception_if_factory_not_interface() {
+            assertThrows(IllegalComponentException.class, () -> config.bindFactory(Message.class, Message.class));
+        }
+    }
+
+    @Nested
+    class BulkCreation {
+
+        @Singleton
+        public static class SharedDependency implements Dependency {
+        }
+
+        public static class PrototypeDependency implements AnotherDependency {
+        }
+
+        public static class Worker {
+            final Dependency shared;
+            final AnotherDependency prototype;
+            Provider<Dependency> provider;
+            int postConstructed;
+
+            @Inject
+            public Worker(Dependency shared, AnotherDependency prototype) {
+                this.shared = shared;
+                this.prototype = prototype;
+            }
+
+            @Inject
+            public void install(Provider<Dependency> provider) {
+                this.provider = provider;
+            }
+
+            @jakarta.annotation.PostConstruct
+            void init() {
+                postConstructed++;
+            }
+        }
+
+        @BeforeEach
+        public void setup() {
+            config.bind(Dependency.class, SharedDependency.class);
+            config.bind(AnotherDependency.class, PrototypeDependency.class);
+            config.bind(Worker.class, Worker.class);
+        }
+
+        @Test
+        public void should_create_distinct_prototype_instances_into_array() {
+            Worker[] workers = new Worker[8];
+
+            assertSame(workers, config.getContext().create(ComponentRef.of(Worker.class), workers));
+            assertEquals(8, Arrays.stream(workers).distinct().count());
+            assertTrue(Arrays.stream(workers).allMatch(w -> w.postConstructed == 1));
+        }
+
+        @Test
+        public void should_share_scoped_dependencies_and_providers_across_batch() {
+            Context context = config.getContext();
+            Worker[] workers = context.create(ComponentRef.of(Worker.class), new Worker[4]);
+
+            Dependency shared = context.require(ComponentRef.of(Dependency.class));
+            assertTrue(Arrays.stream(workers).allMatch(w -> w.shared == shared));
+            assertTrue(Arrays.stream(workers).allMatch(w -> w.provider == workers[0].provider));
+            assertSame(shared, workers[0].provider.get());
+        }
+
+        @Test
+        public void should_create_prototype_dependencies_per_instance() {
+            Worker[] workers = config.getContext().create(ComponentRef.of(Worker.class), new Worker[4]);
+
+            assertEquals(4, Arrays.stream(workers).map(w -> w.prototype).distinct().count());
+        }
+
+        @Test
+        public void should_fill_array_with_scoped_instance() {
+            Dependency[] dependencies = config.getContext().create(ComponentRef.of(Dependency.class), new Dependency[3]);
+
+            assertEquals(1, Arrays.stream(dependencies).distinct().count());
+        }
+
+        @Test
+        public void should_throw_exception_if_component_not_found() {
+            assertThrows(DependencyNotFoundException.class,
+                    () -> new ContextConfig().getContext().create(ComponentRef.of(Worker.class), new Worker[1]));
+        }
+    }
+
+    @Nested
+    class RetainedHeapReport {
+
+        static class Payload {
+            final long[] data;
+
+            Payload(int size) {
+                this.data = new long[size];
+            }
+        }
+
+        static final Payload SHARED_PAYLOAD = new Payload(16);
+
+        static class Counter {
+            int value;
+        }
+
+        @Singleton
+        public static class Cache implements TestComponent {
+            final Payload payload = new Payload(1024);
+            final List<Payload> entries = new ArrayList<>(List.of(new Payload(8), new Payload(8)));
+            final Payload shared = SHARED_PAYLOAD;
+            @Inject
+            Dependency dependency;
+        }
+
+        @Singleton
+        public static class Registry implements Dependency {
+            final Payload payload = new Payload(4);
+            final Payload shared = SHARED_PAYLOAD;
+        }
+
+        @Singleton
+        public static class Unused implements AnotherDependency {
+        }
+
+        @BeforeEach
+        public void setup() {
+            config.bind(TestComponent.class, Cache.class);
+            config.bind(Dependency.class, Registry.class);
+            config.bind(AnotherDependency.class, Unused.class);
+        }
+
+        @Test
+        public void should_sort_components_by_retained_size() {
+            Context context = config.getContext();
+            context.require(ComponentRef.of(TestComponent.class));
+
+            List<HeapReport.Entry> entries = context.retainedHeap().entries();
+
+            assertEquals(new Component(TestComponent.class, null), entries.get(0).component());
+            assertEquals(new Component(Dependency.class, null), entries.get(1).component());
+            assertEquals(new Component(AnotherDependency.class, null), entries.get(2).component());
+            assertEquals(SingletonProvider.class, entries.get(0).scope());
+            assertTrue(entries.get(0).retained() > 1024 * 8);
+        }
+
+        @Test
+        public void should_not_count_other_scoped_instances_into_dependent() {
+            Context context = config.getContext();
+            context.require(ComponentRef.of(TestComponent.class));
+
+            // 每个对象计为 1：Cache、payload 与其数组、entries 列表及其中 2 个 payload 与数组
+            HeapReport report = context.retainedHeap(instance -> 1);
+
+            assertEquals(8, entry(report, TestComponent.class).retained());
+            // Registry、payload 与其数组
+            assertEquals(3, entry(report, Dependency.class).retained());
+        }
+
+        @Test
+        public void should_attribute_objects_referenced_by_several_components_to_shared() {
+            Context context = config.getContext();
+            context.require(ComponentRef.of(TestComponent.class));
+
+            HeapReport report = context.retainedHeap(instance -> 1);
+
+            assertEquals(2, report.shared());
+            assertEquals(13, report.total());
+        }
+
+        @Test
+        public void should_report_scoped_components_without_instances() {
+            HeapReport report = config.getContext().retainedHeap();
+
+            assertTrue(report.entries().stream().allMatch(entry -> entry.instances() == 0 && entry.retained() == 0));
+        }
+
+        @Test
+        public void should_estimate_shallow_size_by_object_layout() {
+            assertEquals(16, SizeEstimator.layout().shallowSize(new Counter()));
+            assertEquals(16 + 8 * 1024, SizeEstimator.layout().shallowSize(new long[1024]));
+        }
+
+        @Singleton
+        public static class Holder implements TestComponent {
+            @Inject
+            Provider<Dependency> dependency;
+            @Inject
+            AnotherDependency lazy;
+        }
+
+        @Lazy
+        public static class LazyRegistry implements AnotherDependency {
+        }
+
+        @ParameterizedTest
+        @ValueSource(ints = {1, 100})
+        public void should_not_walk_into_container_through_provider_or_lazy_dependency(int unrelated) {
+            ContextConfig config = new ContextConfig();
+            config.bind(TestComponent.class, Holder.class);
+            config.bind(Dependency.class, Registry.class);
+            config.bind(AnotherDependency.class, LazyRegistry.class);
+            for (int i = 0; i < unrelated; i++) {
+                config.bind(Dependency.class, new Dependency() {
+                }, new NamedLiteral("unrelated" + i));
+            }
+            Context context = config.getContext();
+            Holder holder = (Holder) context.require(ComponentRef.of(TestComponent.class));
+            holder.dependency.get();
+            holder.lazy.toString();
+
+            // 只有 Holder 本身，Provider 与 @Lazy 注入的对象属于容器
+            assertEquals(1, entry(context.retainedHeap(instance -> 1), TestComponent.class).retained());
+        }
+
+        private HeapReport.Entry entry(HeapReport report, Class<?> type) {
+            return report.entries().stream().filter(e -> e.component().type() == type).findFirst().orElseThrow();
+        }
+    }
+
+    @Nested
+    class CachedConfiguration {
+
+        @Singleton
+        public static class SingletonComponent implements TestComponent {
+            @Inject
+            Dependency dependency;
+        }
+
+        private final ContextCache cache = new ContextCache(2);
+
+        private final Dependency dependency = new Dependency() {
+        };
+
+        private ContextConfig config(Dependency dependency) {
+            ContextConfig config = new ContextConfig(cache);
+            config.bind(TestComponent.class, SingletonComponent.class);
+            config.bind(Dependency.class, dependency);
+            return config;
+        }
+
+        @Test
+        public void should_reuse_validation_result_for_identical_configuration() {
+            config(dependency).getContext();
+            config(dependency).getContext();
+
+            assertEquals(new ContextCache.Stats(1, 1, 0), cache.stats());
+        }
+
+        @Test
+        public void should_reuse_injection_analysis_of_implementation() {
+            ContextConfig first = config(dependency);
+            ContextConfig second = config(dependency);
+
+            assertSame(first.injections().iterator().next(), second.injections().iterator().next());
+        }
+
+        @Test
+        public void should_share_injection_analysis_built_concurrently() throws Exception {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<InjectionProvider<?>>> results = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return cache.injection(SingletonComponent.class);
+                    }));
+                }
+                start.countDown();
+
+                for (Future<InjectionProvider<?>> result : results) {
+                    assertSame(results.get(0).get(), result.get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Scope
+        @Documented
+        @Retention(RUNTIME)
+        @interface Tenant {
+        }
+
+        @Tenant
+        public static class TenantComponent implements AnotherDependency {
+        }
+
+        // 每次配置都注册一个捕获了变量的 ScopeProvider
+        private ContextConfig tenant(String name) {
+            ContextConfig config = config(dependency);
+            config.scope(Tenant.class, provider -> name.isEmpty() ? provider : new SingletonProvider<>(provider));
+            config.bind(AnotherDependency.class, TenantComponent.class);
+            return config;
+        }
+
+        @Test
+        public void should_reuse_validation_result_with_scope_registered_per_configuration() {
+            tenant("first").getContext();
+            tenant("second").getContext();
+
+            assertEquals(new ContextCache.Stats(1, 1, 0), cache.stats());
+        }
+
+        @Test
+        public void should_not_keep_bound_instance_alive_in_cache() throws InterruptedException {
+            WeakReference<Dependency> reference = cached();
+
+            for (int i = 0; i < 50 && reference.get() != null; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+
+            assertNull(reference.get());
+        }
+
+        private WeakReference<Dependency> cached() {
+            Dependency instance = new Dependency() {
+            };
+            config(instance).getContext();
+            return new WeakReference<>(instance);
+        }
+
+        @Test
+        public void should_not_reuse_validation_result_if_instance_binding_changed() {
+            config(dependency).getContext();
+            config(new Dependency() {
+            }).getContext();
+
+            assertEquals(new ContextCache.Stats(0, 2, 0), cache.stats());
+        }
+
+        @Test
+        public void should_create_new_scoped_instances_for_each_context() {
+            Context first = config(dependency).getContext();
+            Context second = config(dependency).getContext();
+
+            assertNotSame(first.require(ComponentRef.of(TestComponent.class)),
+                    second.require(ComponentRef.of(TestComponent.class)));
+        }
+
+        @Test
+        public void should_evict_least_recently_used_configuration() {
+            config(dependency).getContext();
+            config(new Dependency() {
+            }).getContext();
+            config(new Dependency() {
+            }).getContext();
+            config(dependency).getContext();
+
+            assertEquals(new ContextCache.Stats(0, 4, 2), cache.stats());
+        }
+
+        @Test
+        public void should_check_dependents_again_after_rebinding_cached_configuration() {
+            config(dependency).getContext();
+            ContextConfig config = config(dependency);
+            config.getContext();
+
+            config.bind(Dependency.class, DependencyWithInjectConstructor.class);
+
+            assertThrows(DependencyNotFoundException.class, config::getContext);
+        }
+    }
+
+    @Nested
+    class HotSwap {
+
+        interface Credential {
+        }
+
+        record Rotated(String value) implements Credential {
+        }
+
+        @Singleton
+        public static class Client implements TestComponent {
+            final Credential credential;
+
+            @Inject
+            public Client(Credential credential) {
+                this.credential = credential;
+            }
+        }
+
+        @Singleton
+        public static class Gateway implements Dependency {
+            final TestComponent client;
+
+            @Inject
+            public Gateway(TestComponent client) {
+                this.client = client;
+            }
+        }
+
+        public static class CredentialHolder {
+            final Provider<Credential> credential;
+
+            @Inject
+            public CredentialHolder(Provider<Credential> credential) {
+                this.credential = credential;
+            }
+        }
+
+        @Singleton
+        public static class VaultCredential implements Credential {
+            @Inject
+            public VaultCredential(AnotherDependency vault) {
+            }
+        }
+
+        public static class CyclicCredential implements Credential {
+            @Inject
+            public CyclicCredential(TestComponent client) {
+            }
+        }
+
+        public static class Blocker {
+            static CountDownLatch entered;
+            static CountDownLatch release;
+
+            @Inject
+            public Blocker() throws InterruptedException {
+                entered.countDown();
+                release.await();
+            }
+        }
+
+        public static class Consumer {
+            final Credential credential;
+
+            @Inject
+            public Consumer(Blocker blocker, Credential credential) {
+                this.credential = credential;
+            }
+        }
+
+        private final Credential initial = new Rotated("initial");
+        private final Credential rotated = new Rotated("rotated");
+
+        @BeforeEach
+        public void setup() {
+            config.bind(Credential.class, initial);
+            config.bind(TestComponent.class, Client.class);
+            config.bind(Dependency.class, Gateway.class);
+            config.bind(CredentialHolder.class, CredentialHolder.class);
+        }
+
+        @Test
+        public void should_resolve_swapped_instance() {
+            Context context = config.getContext();
+
+            context.swap(ComponentRef.of(Credential.class), rotated, SwapPolicy.KEEP_DEPENDENTS);
+
+            assertSame(rotated, context.require(ComponentRef.of(Credential.class)));
+        }
+
+        @Test
+        public void should_keep_created_dependents_if_policy_keeps_them() {
+            Context context = config.getContext();
+            Client client = (Client) context.require(ComponentRef.of(TestComponent.class));
+
+            context.swap(ComponentRef.of(Credential.class), rotated, SwapPolicy.KEEP_DEPENDENTS);
+
+            assertSame(client, context.require(ComponentRef.of(TestComponent.class)));
+            assertSame(initial, client.credential);
+        }
+
+        @Test
+        public void should_renew_dependent_singletons_transitively_if_policy_renews_them() {
+            Context context = config.getContext();
+            Gateway gateway = (Gateway) context.require(ComponentRef.of(Dependency.class));
+
+            context.swap(ComponentRef.of(Credential.class), rotated, SwapPolicy.RENEW_DEPENDENTS);
+
+            Gateway renewed = (Gateway) context.require(ComponentRef.of(Dependency.class));
+            assertNotSame(gateway, renewed);
+            assertSame(rotated, ((Client) renewed.client).credential);
+            assertSame(initial, ((Client) gateway.client).credential);
+        }
+
+        @Test
+        public void should_renew_singleton_bound_with_multi_qualifiers_once() {
+            config.bind(Dependency.class, Gateway.class, new NamedLiteral("primary"), new NamedLiteral("backup"));
+            Context context = config.getContext();
+
+            context.swap(ComponentRef.of(Credential.class), rotated, SwapPolicy.RENEW_DEPENDENTS);
+
+            Dependency primary = context.require(ComponentRef.of(Dependency.class, new NamedLiteral("primary")));
+            assertSame(primary, context.require(ComponentRef.of(Dependency.class, new NamedLiteral("backup"))));
+            assertSame(rotated, ((Client) ((Gateway) primary).client).credential);
+        }
+
+        @Test
+        public void should_resolve_swapped_component_through_injected_provider() {
+            Context context = config.getContext();
+            CredentialHolder holder = context.require(ComponentRef.of(CredentialHolder.class));
+
+            context.swap(ComponentRef.of(Credential.class), rotated, SwapPolicy.KEEP_DEPENDENTS);
+
+            assertSame(rotated, holder.credential.get());
+        }
+
+        @Test
+        public void should_swap_implementation_with_its_scope() {
+            AnotherDependency vault = new AnotherDependency() {
+            };
+            config.bind(AnotherDependency.class, vault);
+            Context context = config.getContext();
+
+            context.swap(ComponentRef.of(Credential.class), VaultCredential.class, SwapPolicy.KEEP_DEPENDENTS);
+
+            Credential credential = context.require(ComponentRef.of(Credential.class));
+            assertTrue(credential instanceof VaultCredential);
+            assertSame(credential, context.require(ComponentRef.of(Credential.class)));
+        }
+
+        @Test
+        public void should_throw_exception_and_keep_bindings_if_swapped_dependency_not_found() {
+            Context context = config.getContext();
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class, () ->
+                    context.swap(ComponentRef.of(Credential.class), VaultCredential.class, SwapPolicy.KEEP_DEPENDENTS));
+
+            assertEquals(new Component(AnotherDependency.class, null), exception.getDependency());
+            assertSame(initial, context.require(ComponentRef.of(Credential.class)));
+        }
+
+        @Test
+        public void should_throw_exception_if_swap_introduces_cyclic_dependencies() {
+            Context context = config.getContext();
+
+            assertThrows(CyclicDependenciesFoundException.class, () ->
+                    context.swap(ComponentRef.of(Credential.class), CyclicCredential.class, SwapPolicy.KEEP_DEPENDENTS));
+        }
+
+        @Test
+        public void should_throw_exception_if_swapped_component_not_bound() {
+            Context context = config.getContext();
+
+            assertThrows(DependencyNotFoundException.class, () ->
+                    context.swap(ComponentRef.of(AnotherDependency.class), new AnotherDependency() {
+                    }, SwapPolicy.KEEP_DEPENDENTS));
+        }
+
+        @Test
+        public void should_resolve_in_flight_component_with_bindings_before_swap() throws Exception {
+            Blocker.entered = new CountDownLatch(1);
+            Blocker.release = new CountDownLatch(1);
+            config.bind(Blocker.class, Blocker.class);
+            config.bind(Consumer.class, Consumer.class);
+            Context context = config.getContext();
+
+            CompletableFuture<Consumer> inFlight = CompletableFuture.supplyAsync(() -> context.require(ComponentRef.of(Consumer.class)));
+            Blocker.entered.await();
+            context.swap(ComponentRef.of(Credential.class), rotated, SwapPolicy.KEEP_DEPENDENTS);
+            Blocker.release.countDown();
+
+            assertSame(initial, inFlight.get().credential);
+            assertSame(rotated, context.require(ComponentRef.of(Consumer.class)).credential);
+        }
+    }
+
+    @Nested
+    class ReclaimableScopes {
+
+        @Scope
+        @Documented
+        @Retention(RUNTIME)
+        @interface ReferenceData {
+        }
+
+        @ReferenceData
+        public static class CountryCodes implements TestComponent {
+        }
+
+        static class CountingProvider implements ComponentProvider<Object> {
+            final AtomicInteger created = new AtomicInteger();
+
+            @Override
+            public Object get(Context context) {
+                created.incrementAndGet();
+                return new Object();
+            }
+        }
+
+        private final CountingProvider counting = new CountingProvider();
+        private final AtomicLong clock = new AtomicLong();
+
+        @Nested
+        class SoftReferenceScope {
+
+            @Test
+            public void should_retrieve_same_instance_while_not_reclaimed() {
+                config.scope(ReferenceData.class, SoftReferenceProvider.scope());
+                config.bind(TestComponent.class, CountryCodes.class);
+                Context context = config.getContext();
+
+                assertSame(context.require(ComponentRef.of(TestComponent.class)),
+                        context.require(ComponentRef.of(TestComponent.class)));
+            }
+
+            @Test
+            public void should_create_again_after_reclaimed() throws Exception {
+                SoftReferenceProvider<Object> provider = new SoftReferenceProvider<>(counting);
+                Object instance = provider.get(null);
+
+                // 模拟 GC 回收了实例
+                java.lang.reflect.Field reference = SoftReferenceProvider.class.getDeclaredField("reference");
+                reference.setAccessible(true);
+                ((java.lang.ref.SoftReference<?>) reference.get(provider)).clear();
+
+                assertNotSame(instance, provider.get(null));
+                assertEquals(2, counting.created.get());
+            }
+
+            @Test
+            public void should_create_only_once_for_concurrent_access() {
+                SoftReferenceProvider<Object> provider = new SoftReferenceProvider<>(context -> {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return counting.get(context);
+                });
+
+                Object[] instances = Workers.invokeAll(IntStream.range(0, 4)
+                        .mapToObj(i -> (java.util.concurrent.Callable<?>) () -> provider.get(null))
+                        .toArray(java.util.concurrent.Callable<?>[]::new));
+
+                assertEquals(1, counting.created.get());
+                assertEquals(1, Arrays.stream(instances).distinct().count());
+            }
+        }
+
+        @Nested
+        class ExpiringScope {
+
+            @Test
+            public void should_retrieve_same_instance_before_expired() {
+                ScopedProvider<?> provider = (ScopedProvider<?>) ExpiringProvider.scope(Duration.ofMinutes(1), false, clock::get)
+                        .create(counting);
+                Object instance = provider.get(null);
+                clock.addAndGet(Duration.ofSeconds(59).toNanos());
+
+                assertSame(instance, provider.get(null));
+            }
+
+            @Test
+            public void should_create_again_after_expired() {
+                ScopedProvider<?> provider = (ScopedProvider<?>) ExpiringProvider.scope(Duration.ofMinutes(1), false, clock::get)
+                        .create(counting);
+                Object instance = provider.get(null);
+                clock.addAndGet(Duration.ofMinutes(1).toNanos());
+
+                Object refreshed = provider.get(null);
+                assertNotSame(instance, refreshed);
+                assertEquals(List.of(refreshed), provider.instances());
+            }
+
+            @Test
+            public void should_serve_stale_instance_while_refreshing_asynchronously() throws Exception {
+                CountDownLatch release = new CountDownLatch(1);
+                ScopedProvider<?> provider = (ScopedProvider<?>) ExpiringProvider.scope(Duration.ofMinutes(1), true, clock::get)
+                        .create(context -> {
+                            if (counting.created.get() > 0) {
+                                try {
+                                    release.await();
+                                } catch (InterruptedException e) {
+                                    throw new IllegalStateException(e);
+                                }
+                            }
+                            return counting.get(context);
+                        });
+                Object stale = provider.get(null);
+                clock.addAndGet(Duration.ofMinutes(2).toNanos());
+
+                assertSame(stale, provider.get(null));
+                assertSame(stale, provider.get(null));
+                release.countDown();
+
+                long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+                while (provider.get(null) == stale && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+                assertNotSame(stale, provider.get(null));
+                assertEquals(2, counting.created.get());
+            }
+
+            @Test
+            public void should_refresh_asynchronously_without_tracing_context() throws Exception {
+                List<Context> contexts = Collections.synchronizedList(new ArrayList<>());
+                ScopedProvider<?> provider = (ScopedProvider<?>) ExpiringProvider.scope(Duration.ofMinutes(1), true, clock::get)
+                        .create(context -> {
+                            contexts.add(context);
+                            return new Object();
+                        });
+                Context base = new ContextConfig().getContext();
+                TracingContext tracing = new TracingContext(ref -> null, base);
+                Object stale = provider.get(tracing);
+                clock.addAndGet(Duration.ofMinutes(2).toNanos());
+
+                provider.get(tracing);
+                long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+                while (provider.get(base) == stale && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+
+                assertEquals(List.of(tracing, base), contexts);
+            }
+
+            @Test
+            public void should_bind_component_with_expiring_scope() {
+                config.scope(ReferenceData.class, ExpiringProvider.scope(Duration.ofMinutes(1), false, clock::get));
+                config.bind(TestComponent.class, CountryCodes.class);
+                Context context = config.getContext();
+                TestComponent instance = context.require(ComponentRef.of(TestComponent.class));
+
+                assertSame(instance, context.require(ComponentRef.of(TestComponent.class)));
+                clock.addAndGet(Duration.ofMinutes(1).toNanos());
+                assertNotSame(instance, context.require(ComponentRef.of(TestComponent.class)));
+            }
+
+            @Test
+            public void should_not_accept_non_positive_ttl() {
+                assertThrows(IllegalArgumentException.class, () -> ExpiringProvider.scope(Duration.ZERO, false));
+            }
+        }
+    }
+
+    @Nested
+    class ResolutionTracing {
+
+        @Singleton
+        public static class Repository implements Dependency {
+        }
+
+        public static class Clock implements AnotherDependency {
+        }
+
+        public static class Handler implements TestComponent {
+            @Inject
+            AnotherDependency clock;
+
+            @Inject
+            public Handler(Dependency repository) {
+            }
+        }
+
+        private final List<Trace> traces = new ArrayList<>();
+
+        @BeforeEach
+        public void setup() {
+            config.bind(Dependency.class, Repository.class);
+            config.bind(AnotherDependency.class, Clock.class);
+            config.bind(TestComponent.class, Handler.class);
+        }
+
+        @Test
+        public void should_record_resolution_tree_of_sampled_ref() {
+            Context context = config.getContext();
+            context.trace(TraceListener.refs(ComponentRef.of(TestComponent.class)), traces::add);
+
+            context.require(ComponentRef.of(TestComponent.class));
+
+            Trace trace = traces.get(0);
+            assertEquals(new Component(TestComponent.class, null), trace.component());
+            assertNull(trace.scope());
+            assertNotNull(trace.injection());
+            assertEquals(List.of(new Component(Dependency.class, null), new Component(AnotherDependency.class, null)),
+                    trace.dependencies().stream().map(Trace::component).toList());
+            assertTrue(trace.nanos() >= trace.injection().constructorNanos() + trace.injection().fieldNanos());
+        }
+
+        public static class Route {
+            @Inject
+            public Route(Dependency repository, AnotherDependency clock) {
+            }
+        }
+
+        @Test
+        public void should_record_dependencies_of_fused_provider() {
+            config.bind(Route.class, Route.class);
+            Context context = config.getContext();
+            context.specialize(1);
+            context.require(ComponentRef.of(Route.class));
+            assertTrue(((ComponentContext) context).provider(ComponentRef.of(Route.class)) instanceof FusedProvider);
+            context.trace(TraceListener.refs(ComponentRef.of(Route.class)), traces::add);
+
+            context.require(ComponentRef.of(Route.class));
+
+            Trace trace = traces.get(0);
+            assertNotNull(trace.injection());
+            assertEquals(List.of(new Component(Dependency.class, null), new Component(AnotherDependency.class, null)),
+                    trace.dependencies().stream().map(Trace::component).toList());
+        }
+
+        public interface Sink {
+            void accept();
+        }
+
+        @Lazy
+        public static class LazySink implements Sink {
+            @Inject
+            AnotherDependency clock;
+
+            @Override
+            public void accept() {
+            }
+        }
+
+        public static class Emitter {
+            final Sink sink;
+
+            @Inject
+            public Emitter(Sink sink) {
+                this.sink = sink;
+            }
+        }
+
+        @Test
+        public void should_not_keep_tracing_context_in_lazy_dependency() throws Exception {
+            config.bind(Sink.class, LazySink.class);
+            config.bind(Emitter.class, Emitter.class);
+            Context context = config.getContext();
+            context.trace(TraceListener.refs(ComponentRef.of(Emitter.class)), traces::add);
+
+            Emitter emitter = context.require(ComponentRef.of(Emitter.class));
+            emitter.sink.accept();
+
+            Object target = DelegatingClass.of(Sink.class).target(emitter.sink);
+            Field captured = target.getClass().getDeclaredField("context");
+            captured.setAccessible(true);
+            assertFalse(captured.get(target) instanceof TracingContext);
+            assertEquals(List.of(), traces.get(0).dependencies().get(0).dependencies());
+        }
+
+        @Test
+        public void should_record_scope_hit_and_miss() {
+            Context context = config.getContext();
+            context.trace(TraceListener.refs(ComponentRef.of(TestComponent.class)), traces::add);
+
+            context.require(ComponentRef.of(TestComponent.class));
+            context.require(ComponentRef.of(TestComponent.class));
+
+            Trace miss = traces.get(0).dependencies().get(0);
+            Trace hit = traces.get(1).dependencies().get(0);
+            assertEquals(SingletonProvider.class, miss.scope());
+            assertFalse(miss.hit());
+            assertNotNull(miss.injection());
+            assertTrue(hit.hit());
+            assertNull(hit.injection());
+        }
+
+        @Test
+        public void should_not_record_calls_not_sampled() {
+            Context context = config.getContext();
+            context.trace(TraceListener.refs(ComponentRef.of(Dependency.class)), traces::add);
+
+            context.require(ComponentRef.of(TestComponent.class));
+            context.getOrNull(ComponentRef.of(Dependency.class));
+
+            assertEquals(1, traces.size());
+            assertEquals(new Component(Dependency.class, null), traces.get(0).component());
+        }
+
+        @Test
+        public void should_sample_fraction_of_calls() {
+            Context context = config.getContext();
+            context.trace(TraceListener.fraction(0), traces::add);
+            context.require(ComponentRef.of(TestComponent.class));
+            assertTrue(traces.isEmpty());
+
+            context.trace(TraceListener.fraction(1), traces::add);
+            context.require(ComponentRef.of(TestComponent.class));
+            assertEquals(1, traces.size());
+        }
+
+        @Test
+        public void should_stop_tracing() {
+            Context context = config.getContext();
+            context.trace(TraceListener.fraction(1), traces::add);
+            context.trace(null, null);
+
+            context.require(ComponentRef.of(TestComponent.class));
+
+            assertTrue(traces.isEmpty());
+        }
+
+        @Test
+        public void should_throw_exception_for_sampled_ref_not_found() {
+            Context context = config.getContext();
+            context.trace(TraceListener.fraction(1), traces::add);
+
+            assertThrows(DependencyNotFoundException.class, () -> context.require(ComponentRef.of(String.class)));
+            assertNull(context.getOrNull(ComponentRef.of(String.class)));
+            assertTrue(traces.isEmpty());
+        }
+    }
+
+    @Nested
+    class ConcurrentRegistration {
+
+        @Scope
+        @Documented
+        @Retention(RUNTIME)
+        @interface Plugin {
+        }
+
+        @Plugin
+        public static class PluginComponent implements TestComponent {
+            @Inject
+            Dependency dependency;
+        }
+
+        @Test
+        public void should_bind_components_from_multiple_threads() {
+            ContextConfig config = ContextConfig.concurrent();
+            config.bind(Dependency.class, new Dependency() {
+            });
+
+            Workers.invokeAll(IntStream.range(0, 64).mapToObj(i -> (java.util.concurrent.Callable<?>) () -> {
+                config.bind(TestComponent.class, new TestComponent() {
+                }, new NamedLiteral("instance" + i));
+                config.bind(TestComponent.class, ComponentWithInjectConstructor.class, new NamedLiteral("class" + i));
+                return null;
+            }).toArray(java.util.concurrent.Callable<?>[]::new));
+
+            Context context = config.getContext();
+            for (int i = 0; i < 64; i++) {
+                assertNotNull(context.require(ComponentRef.of(TestComponent.class, new NamedLiteral("instance" + i))));
+                assertNotNull(context.require(ComponentRef.of(TestComponent.class, new NamedLiteral("class" + i))));
+            }
+        }
+
+        @Test
+        public void should_accept_exactly_one_of_concurrent_duplicated_bindings() {
+            ContextConfig config = ContextConfig.concurrent();
+            AtomicInteger failures = new AtomicInteger();
+
+            Workers.invokeAll(IntStream.range(0, 16).mapToObj(i -> (java.util.concurrent.Callable<?>) () -> {
+                try {
+                    config.bind(TestComponent.class, new TestComponent() {
+                    });
+                } catch (ContextConfigException e) {
+                    failures.incrementAndGet();
+                }
+                return null;
+            }).toArray(java.util.concurrent.Callable<?>[]::new));
+
+            assertEquals(15, failures.get());
+            assertNotNull(config.getContext().require(ComponentRef.of(TestComponent.class)));
+        }
+
+        @Test
+        public void should_bind_all_qualifiers_atomically() {
+            ContextConfig config = ContextConfig.concurrent();
+            config.bind(TestComponent.class, new TestComponent() {
+            }, new NamedLiteral("taken"));
+
+            assertThrows(ContextConfigException.class, () -> config.bind(TestComponent.class, new TestComponent() {
+            }, new NamedLiteral("free"), new NamedLiteral("taken")));
+
+            assertTrue(config.getContext().get(ComponentRef.of(TestComponent.class, new NamedLiteral("free"))).isEmpty());
+        }
+
+        @Test
+        public void should_register_scopes_while_binding() {
+            ContextConfig config = ContextConfig.concurrent();
+
+            Workers.invokeAll(new java.util.concurrent.Callable<?>[]{
+                    () -> {
+                        config.scope(Plugin.class, SingletonProvider::new);
+                        return null;
+                    },
+                    () -> {
+                        config.bind(Dependency.class, new Dependency() {
+                        });
+                        return null;
+                    }});
+            config.bind(TestComponent.class, PluginComponent.class);
+
+            Context context = config.getContext();
+            assertSame(context.require(ComponentRef.of(TestComponent.class)), context.require(ComponentRef.of(TestComponent.class)));
+        }
+
+        @Test
+        public void should_still_override_bindings_in_default_mode() {
+            TestComponent instance = new TestComponent() {
+            };
+            config.bind(TestComponent.class, new TestComponent() {
+            });
+            config.bind(TestComponent.class, instance);
+
+            assertSame(instance, config.getContext().require(ComponentRef.of(TestComponent.class)));
+        }
+    }
+
+    @Nested
+    class AdaptiveSpecialization {
+
+        @Singleton
+        public static class Settings {
+        }
+
+        public static class Parser {
+            final Settings settings;
+
+            @Inject
+            public Parser(Settings settings) {
+                this.settings = settings;
+            }
+        }
+
+        public static class Validator {
+            @Inject
+            Settings settings;
+        }
+
+        public static class Request {
+            final Parser parser;
+            final Validator validator;
+            final Provider<Parser> parsers;
+
+            @Inject
+            public Request(Parser parser, Validator validator, Provider<Parser> parsers) {
+                this.parser = parser;
+                this.validator = validator;
+                this.parsers = parsers;
+            }
+        }
+
+        private Context context;
+
+        @BeforeEach
+        public void setup() {
+            config.bind(Settings.class, Settings.class);
+            config.bind(Parser.class, Parser.class);
+            config.bind(Validator.class, Validator.class);
+            config.bind(Request.class, Request.class);
+            context = config.getContext();
+            context.specialize(3);
+        }
+
+        private ComponentProvider<?> provider(Class<?> type) {
+            return ((ComponentContext) context).provider(ComponentRef.of(type));
+        }
+
+        @Test
+        public void should_fuse_prototype_after_threshold() {
+            context.require(ComponentRef.of(Request.class));
+            context.require(ComponentRef.of(Request.class));
+            assertTrue(provider(Request.class) instanceof InjectionProvider);
+
+            context.require(ComponentRef.of(Request.class));
+            assertTrue(provider(Request.class) instanceof FusedProvider);
+        }
+
+        @Test
+        public void should_build_same_graph_with_fused_provider() {
+            for (int i = 0; i < 3; i++) {
+                context.require(ComponentRef.of(Request.class));
+            }
+            Settings settings = context.require(ComponentRef.of(Settings.class));
+
+            Request first = context.require(ComponentRef.of(Request.class));
+            Request second = context.require(ComponentRef.of(Request.class));
+
+            assertNotSame(first, second);
+            assertNotSame(first.parser, second.parser);
+            assertNotSame(first.validator, second.validator);
+            assertSame(settings, first.parser.settings);
+            assertSame(settings, second.validator.settings);
+            assertSame(settings, first.parsers.get().settings);
+        }
+
+        @Test
+        public void should_not_fuse_component_with_field_injection() {
+            for (int i = 0; i < 5; i++) {
+                context.require(ComponentRef.of(Validator.class));
+            }
+
+            assertTrue(provider(Validator.class) instanceof InjectionProvider);
+        }
+
+        @Test
+        public void should_restore_fused_providers_after_swap() {
+            for (int i = 0; i < 3; i++) {
+                context.require(ComponentRef.of(Request.class));
+            }
+            Settings settings = new Settings();
+
+            context.swap(ComponentRef.of(Settings.class), settings, SwapPolicy.RENEW_DEPENDENTS);
+
+            assertTrue(provider(Request.class) instanceof InjectionProvider);
+            assertSame(settings, context.require(ComponentRef.of(Request.class)).parser.settings);
+        }
+
+        public static class Faulty {
+            @Inject
+            public Faulty() {
+                throw new IllegalStateException("faulty");
+            }
+        }
+
+        public static class FaultyConsumer {
+            @Inject
+            public FaultyConsumer(Faulty faulty) {
+            }
+        }
+
+        @ParameterizedTest
+        @ValueSource(classes = {Faulty.class, FaultyConsumer.class})
+        public void should_throw_same_exception_before_and_after_fusion(Class<?> type) {
+            ContextConfig config = new ContextConfig();
+            config.bind(Faulty.class, Faulty.class);
+            config.bind(FaultyConsumer.class, FaultyConsumer.class);
+            Context context = config.getContext();
+            context.specialize(3);
+
+            for (int i = 0; i < 5; i++) {
+                RuntimeException exception = assertThrows(RuntimeException.class, () -> context.require(ComponentRef.of(type)));
+                assertEquals(RuntimeException.class, exception.getClass());
+                assertTrue(exception.getCause() instanceof InvocationTargetException);
+                assertEquals("faulty", exception.getCause().getCause().getMessage());
+            }
+            assertTrue(((ComponentContext) context).provider(ComponentRef.of(type)) instanceof FusedProvider);
+        }
+
+        @Test
+        public void should_not_profile_if_specialization_disabled() {
+            context.specialize(0);
+            for (int i = 0; i < 5; i++) {
+                context.require(ComponentRef.of(Request.class));
+            }
+
+            assertTrue(provider(Request.class) instanceof InjectionProvider);
+        }
+    }
+
+    @Nested
+    class UsageTracking {
+
+        public static class Store {
+        }
+
+        public static class Repository {
+            @Inject
+            Store store;
+        }
+
+        public static class Service {
+            final Repository repository;
+
+            @Inject
+            public Service(Repository repository) {
+                this.repository = repository;
+            }
+        }
+
+        public static class Job {
+            final Provider<Store> stores;
+
+            @Inject
+            public Job(Provider<Store> stores) {
+                this.stores = stores;
+            }
+        }
+
+        public static class Report {
+        }
+
+        private Context context;
+
+        @BeforeEach
+        public void setup() {
+            config.bind(Store.class, Store.class);
+            config.bind(Repository.class, Repository.class);
+            config.bind(Service.class, Service.class);
+            config.bind(Job.class, Job.class);
+            config.bind(Report.class, Report.class);
+            config.bind(Report.class, new Report(), new NamedLiteral("daily"));
+            context = config.getContext();
+            context.trackUsage("web");
+        }
+
+        private static Component component(Class<?> type) {
+            return new Component(type, null);
+        }
+
+        @Test
+        public void should_record_components_resolved_directly_or_transitively() {
+            context.require(ComponentRef.of(Service.class));
+
+            UsageReport usage = context.usage();
+
+            assertEquals("web", usage.role());
+            assertEquals(Set.of(component(Service.class), component(Repository.class), component(Store.class)), usage.used());
+            assertEquals(Set.of(component(Job.class), component(Report.class),
+                    new Component(Report.class, new NamedLiteral("daily"))), usage.unused());
+        }
+
+        @Test
+        public void should_record_component_behind_provider_only_when_provider_get() {
+            Job job = context.require(ComponentRef.of(Job.class));
+            assertFalse(context.usage().used().contains(component(Store.class)));
+
+            job.stores.get();
+            assertTrue(context.usage().used().contains(component(Store.class)));
+        }
+
+        @Test
+        public void should_record_qualified_component() {
+            context.get(ComponentRef.of(Report.class, new NamedLiteral("daily")));
+
+            UsageReport usage = context.usage();
+
+            assertEquals(Set.of(new Component(Report.class, new NamedLiteral("daily"))), usage.used());
+            assertTrue(usage.unused().contains(component(Report.class)));
+        }
+
+        @Test
+        public void should_record_components_resolved_by_fused_provider() {
+            context.specialize(1);
+            context.require(ComponentRef.of(Service.class));
+            context.trackUsage("batch");
+
+            context.require(ComponentRef.of(Service.class));
+
+            assertEquals("batch", context.usage().role());
+            assertEquals(Set.of(component(Service.class), component(Repository.class), component(Store.class)),
+                    context.usage().used());
+        }
+
+        @Test
+        public void should_not_fuse_while_tracking_usage() {
+            context.specialize(1);
+
+            context.require(ComponentRef.of(Service.class));
+            context.require(ComponentRef.of(Service.class));
+
+            assertTrue(((ComponentContext) context).provider(ComponentRef.of(Service.class)) instanceof InjectionProvider);
+        }
+
+        @Test
+        public void should_keep_usage_after_swap() {
+            context.require(ComponentRef.of(Service.class));
+
+            context.swap(ComponentRef.of(Store.class), new Store(), SwapPolicy.KEEP_DEPENDENTS);
+            context.require(ComponentRef.of(Report.class));
+
+            assertTrue(context.usage().used().containsAll(List.of(component(Store.class), component(Report.class))));
+        }
+
+        @Test
+        public void should_shrink_context_to_used_components() {
+            context.require(ComponentRef.of(Service.class));
+
+            Context pruned = config.getContext(context.usage().roots());
+
+            assertTrue(pruned.get(ComponentRef.of(Service.class)).isPresent());
+            assertTrue(pruned.get(ComponentRef.of(Job.class)).isEmpty());
+        }
+
+        @Test
+        public void should_merge_usage_of_roles() {
+            UsageReport web = new UsageReport("web", Set.of(component(Service.class)), Set.of(component(Job.class), component(Report.class)));
+            UsageReport batch = new UsageReport("batch", Set.of(component(Job.class)), Set.of(component(Service.class), component(Report.class)));
+
+            Map<Component, Set<String>> roles = UsageReport.roles(List.of(web, batch));
+
+            assertEquals(Set.of("web"), roles.get(component(Service.class)));
+            assertEquals(Set.of("batch"), roles.get(component(Job.class)));
+            assertEquals(Set.of(component(Report.class)), UsageReport.unusedInAll(List.of(web, batch)));
+        }
+
+        @Test
+        public void should_export_usage_line_by_line() {
+            UsageReport usage = new UsageReport("web", Set.of(component(Service.class)), Set.of(component(Job.class)));
+
+            assertEquals("web\tunused\t" + Job.class.getName() + "\t\n" + "web\tused\t" + Service.class.getName() + "\t",
+                    usage.export());
+        }
+
+        @Test
+        public void should_throw_exception_if_usage_not_tracked() {
+            ContextConfig config = new ContextConfig();
+            config.bind(Store.class, Store.class);
+
+            assertThrows(IllegalStateException.class, () -> config.getContext().usage());
+        }
+    }
+
+    @Nested
+    class ConcurrentResolution {
+
+        private static CountDownLatch resolving;
+
+        // 两个依赖都在解析中，才能继续；串行解析时会超时
+        private static void resolved() {
+            resolving.countDown();
+            try {
+                assertTrue(resolving.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public static class Left {
+            @Inject
+            public Left() {
+                resolved();
+            }
+        }
+
+        public static class Right {
+            @Inject
+            public Right() {
+                resolved();
+            }
+        }
+
+        @Concurrent
+        public static class Both {
+            final Left left;
+            final Right right;
+
+            @Inject
+            public Both(Left left, Right right) {
+                this.left = left;
+                this.right = right;
+            }
+        }
+
+        public static class Plain {
+            final Left left;
+            final Right right;
+
+            @Inject
+            public Plain(Left left, Right right) {
+                this.left = left;
+                this.right = right;
+            }
+        }
+
+        @BeforeEach
+        public void setup() {
+            resolving = new CountDownLatch(2);
+            config.bind(Left.class, Left.class);
+            config.bind(Right.class, Right.class);
+        }
+
+        @Test
+        public void should_resolve_dependencies_of_concurrent_component_concurrently() {
+            config.bind(Both.class, Both.class);
+
+            Both both = config.getContext().require(ComponentRef.of(Both.class));
+
+            assertNotNull(both.left);
+            assertNotNull(both.right);
+        }
+
+        @Test
+        public void should_resolve_dependencies_concurrently_if_bound_with_concurrent_annotation() {
+            config.bind(Plain.class, Plain.class, Both.class.getAnnotation(Concurrent.class));
+
+            Plain plain = config.getContext().require(ComponentRef.of(Plain.class));
+
+            assertNotNull(plain.left);
+            assertNotNull(plain.right);
+        }
+
+        @Test
+        public void should_resolve_dependencies_concurrently_when_created_in_bulk() {
+            config.bind(Both.class, Both.class);
+
+            Both[] instances = config.getContext().create(ComponentRef.of(Both.class), new Both[2]);
+
+            assertNotSame(instances[0].left, instances[1].left);
+            assertNotNull(instances[1].right);
+        }
+    }
+}
+
+
+record NamedLiteral(String value) implements jakarta.inject.Named {
+    @Override
+    public Class<? extends Annotation> annotationType() {
+        return jakarta.inject.Named.class;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof jakarta.inject.Named named) {
+            return Objects.equals(value, named.value());
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return "value".hashCode() * 127 ^ value.hashCode();
+    }
+}
+
+@java.lang.annotation.Documented
+@java.lang.annotation.Retention(RUNTIME)
+@jakarta.inject.Qualifier
+@interface Skywalker {
+}
+
+record SkywalkerLiteral() implements Skywalker {
+    @Override
+    public Class<? extends Annotation> annotationType() {
+        return Skywalker.class;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Skywalker;
+    }
+}
+
+record TestLiteral() implements Test {
+    @Override
+    public Class<? extends Annotation> annotationType() {
+        return Test.class;
+    }
+}
+
+record SingletonLiteral() implements Singleton {
+    @Override
+    public Class<? extends Annotation> annotationType() {
+        return Singleton.class;
+    }
+}
+
+@Scope
+@Documented
+@Retention(RUNTIME)
+@interface Pooled {
+}
+
+record LazyLiteral() implements Lazy {
+    @Override
+    public Class<? extends Annotation> annotationType() {
+        return Lazy.class;
+    }
 }
 
 record PooledLiteral() implements Pooled {
@@ -3,6 +3,7 @@ package kuan.tdd.di;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.inject.Provider;
+import kuan.tdd.di.exception.DependencyNotFoundException;
 import kuan.tdd.di.exception.IllegalComponentException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
@@ -11,7 +12,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.lang.reflect.ParameterizedType;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.eq;
@@ -27,7 +31,7 @@ class InjectionTest {
 
     private final Provider<Dependency> dependencyProvider = mock(Provider.class);
     private final Dependency dependency = mock(Dependency.class);
-    private final Context context = mock(Context.class);
+    private final Context context = mock(Context.class, Mockito.CALLS_REAL_METHODS);
 
     private ParameterizedType dependencyProviderType;
 
@@ -517,4 +521,77 @@ class InjectionTest {
             }
         }
     }
+
+    @Nested
+    class ConcurrentInjection {
+
+        private final CountDownLatch resolving = new CountDownLatch(2);
+
+        @BeforeEach
+        public void before() {
+            Mockito.reset(context);
+            when(context.get(eq(ComponentRef.of(Dependency.class)))).thenAnswer(invocation -> {
+                assertTrue(resolved());
+                return Optional.of(dependency);
+            });
+            when(context.get(eq(ComponentRef.of(AnotherDependency.class)))).thenAnswer(invocation -> {
+                assertTrue(resolved());
+                return Optional.of(mock(AnotherDependency.class));
+            });
+        }
+
+        // 两个依赖都在解析中，才能继续；串行解析时会超时
+        private boolean resolved() throws InterruptedException {
+            resolving.countDown();
+            return resolving.await(5, TimeUnit.SECONDS);
+        }
+
+        static class ConcurrentConstructor {
+            Dependency dependency;
+
+            @Inject
+            @Concurrent
+            public ConcurrentConstructor(Dependency dependency, AnotherDependency anotherDependency) {
+                this.dependency = dependency;
+            }
+        }
+
+        @Test
+        public void should_resolve_constructor_arguments_concurrently() {
+            ConcurrentConstructor instance = new InjectionProvider<>(ConcurrentConstructor.class).get(context);
+
+            assertSame(dependency, instance.dependency);
+        }
+
+        @Concurrent
+        static class ConcurrentComponent {
+            Dependency dependency;
+
+            @Inject
+            void install(Dependency dependency, AnotherDependency anotherDependency) {
+                this.dependency = dependency;
+            }
+        }
+
+        @Test
+        public void should_resolve_inject_method_arguments_concurrently_if_component_annotated() {
+            ConcurrentComponent instance = new InjectionProvider<>(ConcurrentComponent.class).get(context);
+
+            assertSame(dependency, instance.dependency);
+        }
+
+        @Test
+        public void should_fail_fast_if_any_argument_failed() {
+            Mockito.reset(context);
+            when(context.get(eq(ComponentRef.of(AnotherDependency.class)))).thenAnswer(invocation -> {
+                new CountDownLatch(1).await();
+                return Optional.empty();
+            });
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertThrows(DependencyNotFoundException.class,
+                        () -> new InjectionProvider<>(ConcurrentConstructor.class).get(context));
+            });
+        }
+    }
 }
@@ -0,0 +1,130 @@
+package kuan.tdd.di;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Member;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author qinxuekuan
+ * @date 2022/7/21
+ */
+class ReflectionMetadataTest {
+
+    ContextConfig config;
+
+    @BeforeEach
+    public void setup() {
+        config = new ContextConfig();
+    }
+
+    static class SuperComponent {
+        @Inject
+        AnotherDependency anotherDependency;
+
+        @PostConstruct
+        void init() {
+        }
+    }
+
+    @Singleton
+    static class InjectedComponent extends SuperComponent implements TestComponent {
+        @Inject
+        Dependency dependency;
+
+        String notInjected;
+
+        @Inject
+        public InjectedComponent(Dependency dependency) {
+        }
+
+        @Inject
+        void install(Dependency dependency, AnotherDependency anotherDependency) {
+        }
+
+        void notInjected() {
+        }
+    }
+
+    @Test
+    public void should_include_members_resolved_by_injection_provider() throws NoSuchMethodException, NoSuchFieldException {
+        config.bind(TestComponent.class, InjectedComponent.class);
+        config.bind(Dependency.class, new Dependency() {
+        });
+
+        assertEquals(Set.of(InjectedComponent.class.getConstructor(Dependency.class),
+                InjectedComponent.class.getDeclaredField("dependency"),
+                InjectedComponent.class.getDeclaredMethod("install", Dependency.class, AnotherDependency.class),
+                SuperComponent.class.getDeclaredField("anotherDependency"),
+                SuperComponent.class.getDeclaredMethod("init")), members());
+    }
+
+    private Set<Member> members() {
+        return ReflectionMetadata.entries(config).stream()
+                .flatMap(entry -> entry.members.stream()).collect(Collectors.toSet());
+    }
+
+    interface GreeterFactory {
+        Greeter create(String name);
+    }
+
+    static class Greeter {
+        @Inject
+        public Greeter(Dependency dependency, @Assisted String name) {
+        }
+    }
+
+    @Test
+    public void should_include_members_resolved_by_assisted_factory() throws NoSuchMethodException {
+        config.bindFactory(GreeterFactory.class, Greeter.class);
+
+        List<Class<?>> types = ReflectionMetadata.entries(config).stream().<Class<?>>map(entry -> entry.type).toList();
+
+        assertEquals(List.of(Greeter.class, GreeterFactory.class), types);
+        assertEquals(Set.of(Greeter.class.getConstructor(Dependency.class, String.class),
+                GreeterFactory.class.getMethod("create", String.class)), members());
+    }
+
+    @Test
+    public void should_include_every_class_in_hierarchy() {
+        config.bind(TestComponent.class, InjectedComponent.class);
+
+        List<Class<?>> types = ReflectionMetadata.entries(config).stream().<Class<?>>map(entry -> entry.type).toList();
+
+        assertEquals(List.of(InjectedComponent.class, SuperComponent.class), types);
+    }
+
+    @Test
+    public void should_not_include_instance_binding() {
+        config.bind(Dependency.class, new Dependency() {
+        });
+
+        assertTrue(ReflectionMetadata.entries(config).isEmpty());
+    }
+
+    @Test
+    public void should_generate_reflect_config() {
+        config.bind(Dependency.class, DependencyWithInjectConstructor.class);
+
+        assertEquals("""
+                [
+                  {
+                    "name": "kuan.tdd.di.DependencyWithInjectConstructor",
+                    "queryAllPublicConstructors": true,
+                    "queryAllDeclaredConstructors": true,
+                    "queryAllDeclaredMethods": true,
+                    "fields": [],
+                    "methods": [{"name": "<init>", "parameterTypes": ["java.lang.String"]}]
+                  }
+                ]
+                """, ReflectionMetadata.reflectConfig(config));
+    }
+}